@@ -0,0 +1,29 @@
+package com.payment.Payment.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mints tokens the way the auth service does, signed with the configured
+ * {@code jwt.secret}.
+ */
+public final class JwtTokens {
+
+    private JwtTokens() {
+    }
+
+    public static String mint(String secret, String username) {
+        return Jwts.builder()
+                .subject(username)
+                .claim("roles", List.of("USER"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .compact();
+    }
+}
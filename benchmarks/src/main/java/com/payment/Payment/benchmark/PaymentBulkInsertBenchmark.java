@@ -0,0 +1,107 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.service.PaymentPersistenceService;
+import com.payment.Payment.util.TransactionIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second written by the batch endpoint's insert of PROCESSING payments,
+ * {@code createProcessingPayments}, with {@code hibernate.jdbc.batch_size} at 1
+ * (one statement per row, as with the old IDENTITY ids) and at the shipped 50.
+ * Each invocation inserts {@value #ROWS} payments in one transaction; the score is
+ * per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentBulkInsertBenchmark {
+
+    private static final int ROWS = 500;
+    private static final String USER = "benchmark-user";
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private PaymentPersistenceService persistence;
+    private TransactionIdGenerator transactionIdGenerator;
+    private CardValidationResponse cardValidation;
+
+    private long nextOrderId = 1;
+    private List<Payment> payments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Command line arguments, since builder properties are only defaults that
+        // application.properties overrides
+        context = new SpringApplicationBuilder(PaymentApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:bulk-insert-" + jdbcBatchSize + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.payment=WARN",
+                        "--order.outbox.poll-interval-ms=3600000");
+        persistence = context.getBean(PaymentPersistenceService.class);
+        transactionIdGenerator = context.getBean(TransactionIdGenerator.class);
+        cardValidation = CardValidationResponse.builder()
+                .valid(true)
+                .cardType("VISA")
+                .cardLastFour("4242")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void newPayments() {
+        payments = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            PaymentRequest request = PaymentRequest.builder()
+                    .orderId(nextOrderId++)
+                    .amount(new BigDecimal("129.99"))
+                    .currency("USD")
+                    .build();
+            payments.add(persistence.newProcessingPayment(
+                    USER, request, cardValidation, transactionIdGenerator.nextTransactionId()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Payment> insertPayments() {
+        return persistence.createProcessingPayments(payments);
+    }
+}
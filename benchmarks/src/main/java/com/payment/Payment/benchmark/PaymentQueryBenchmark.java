@@ -0,0 +1,149 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.repository.PaymentRepository;
+import com.payment.Payment.repository.projection.PaymentSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the payment read queries on a large table, with the indexes declared
+ * on {@link Payment} and with them dropped, i.e. before and after the index change.
+ * Each trial seeds {@code rows} payments spread over {@value #USERS} users straight
+ * into a file H2 database (not through JPA), one second apart and with every
+ * thousandth one PROCESSING. Seeding 5M rows takes a few minutes per trial; pass
+ * {@code -p rows=500000} for a quicker look.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PaymentQueryBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int SEED_CHUNK = 100_000;
+    private static final LocalDateTime FIRST_CREATED_AT = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final List<String> INDEXES = List.of(
+            "idx_payments_user_created", "idx_payments_order", "idx_payments_status_updated");
+
+    @Param({"5000000"})
+    public int rows;
+
+    @Param({"declared", "dropped"})
+    public String indexes;
+
+    private Path databaseDirectory;
+    private ConfigurableApplicationContext context;
+    private PaymentRepository paymentRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        databaseDirectory = Files.createTempDirectory("payment-query-benchmark");
+        // Command line arguments, since builder properties are only defaults that
+        // application.properties overrides
+        context = new SpringApplicationBuilder(PaymentApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("payments"),
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.payment=WARN",
+                        "--order.outbox.poll-interval-ms=3600000");
+        paymentRepository = context.getBean(PaymentRepository.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        if ("dropped".equals(indexes)) {
+            INDEXES.forEach(index -> jdbcTemplate.execute("DROP INDEX " + index));
+        }
+        // Row x belongs to user x % USERS, is for order x and was created x seconds in
+        for (long from = 1; from <= rows; from += SEED_CHUNK) {
+            long to = Math.min(from + SEED_CHUNK - 1, rows);
+            jdbcTemplate.update("INSERT INTO payments (id, user_id, order_id, amount, currency, status,"
+                    + " card_last_four, card_type, transaction_id, refunded_amount, version, active_order_id,"
+                    + " created_at, updated_at)"
+                    + " SELECT X, 'user-' || MOD(X, ?), X, 25.00, 'USD',"
+                    + " CASE WHEN MOD(X, 1000) = 0 THEN 'PROCESSING' ELSE 'COMPLETED' END,"
+                    + " '4242', 'VISA', 'TXN-' || X, 0, 0,"
+                    + " CASE WHEN MOD(X, 1000) = 0 THEN X END,"
+                    + " DATEADD(SECOND, X, ?), DATEADD(SECOND, X, ?)"
+                    + " FROM SYSTEM_RANGE(?, ?)",
+                    USERS, FIRST_CREATED_AT, FIRST_CREATED_AT, from, to);
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(databaseDirectory);
+    }
+
+    @Benchmark
+    public List<PaymentSummary> firstPage() {
+        return paymentRepository.findFirstPageByUserId(user(randomUser()), Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<PaymentSummary> keysetPageFromTheMiddle() {
+        int user = randomUser();
+        // The user's payment halfway through their history
+        long cursorId = user + (long) (rows / USERS / 2) * USERS;
+        return paymentRepository.findPageByUserIdAfter(
+                user(user), FIRST_CREATED_AT.plusSeconds(cursorId), cursorId, Limit.of(PAGE_SIZE));
+    }
+
+    @Benchmark
+    public List<PaymentSummary> fullList() {
+        return paymentRepository.findByUserIdOrderByCreatedAtDesc(user(randomUser()));
+    }
+
+    @Benchmark
+    public Optional<Payment> latestByOrder() {
+        return paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(
+                ThreadLocalRandom.current().nextLong(1, rows + 1L));
+    }
+
+    @Benchmark
+    public List<Payment> processingPayments() {
+        return paymentRepository.findByStatus(PaymentStatus.PROCESSING);
+    }
+
+    private static int randomUser() {
+        return ThreadLocalRandom.current().nextInt(USERS);
+    }
+
+    private static String user(int user) {
+        return "user-" + user;
+    }
+}
@@ -0,0 +1,80 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.dto.request.PaymentRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bean validation of a {@link PaymentRequest}, including the cascaded card
+ * details, for a valid request and for one that violates several constraints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentRequestValidationBenchmark {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private PaymentRequest validRequest;
+    private PaymentRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validRequest = PaymentRequest.builder()
+                .orderId(42L)
+                .amount(new BigDecimal("129.99"))
+                .currency("USD")
+                .cardDetails(PaymentRequest.CardDetails.builder()
+                        .cardNumber("4242424242424242")
+                        .cardHolderName("Benchmark User")
+                        .expiryMonth("12")
+                        .expiryYear("2030")
+                        .cvv("123")
+                        .build())
+                .build();
+        invalidRequest = PaymentRequest.builder()
+                .amount(BigDecimal.ZERO)
+                .currency("")
+                .cardDetails(PaymentRequest.CardDetails.builder()
+                        .cardNumber("4242424242424242")
+                        .build())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PaymentRequest>> validRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<PaymentRequest>> invalidRequest() {
+        return validator.validate(invalidRequest);
+    }
+}
@@ -0,0 +1,78 @@
+package com.payment.Payment.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.util.PaymentMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping a {@link Payment} to its response and writing it as JSON, configured
+ * like the controller's NDJSON writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentResponseBenchmark {
+
+    private final PaymentMapper paymentMapper = new PaymentMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private Payment payment;
+    private PaymentResponse response;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        payment = Payment.builder()
+                .id(1_000_001L)
+                .userId("benchmark-user")
+                .orderId(42L)
+                .amount(new BigDecimal("129.99"))
+                .currency("USD")
+                .status(PaymentStatus.COMPLETED)
+                .cardLastFour("4242")
+                .cardType("VISA")
+                .transactionId("TXN-1A2B3C4D")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        response = paymentMapper.toResponse(payment);
+    }
+
+    @Benchmark
+    public PaymentResponse map() {
+        return paymentMapper.toResponse(payment);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(paymentMapper.toResponse(payment));
+    }
+}
@@ -0,0 +1,142 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.repository.PaymentRepository;
+import com.payment.Payment.service.OrderStatusOutbox;
+import com.payment.Payment.service.PaymentPersistenceService;
+import com.payment.Payment.util.TransactionIdGenerator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completing a PROCESSING payment, the last write of every successful payment,
+ * done the way {@code markCompleted} used to do it (load the entity, change it
+ * and let Hibernate dirty-check and update the full row) against the conditional
+ * status UPDATE it does now. Both variants also queue the order status event.
+ * JDBC statements per completion are counted with Hibernate statistics and
+ * printed after each iteration; creating the payment is not counted.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentWritePathBenchmark {
+
+    private static final String USER = "benchmark-user";
+
+    @Param({"reload-and-save", "conditional-update"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private PaymentPersistenceService persistence;
+    private PaymentRepository paymentRepository;
+    private OrderStatusOutbox orderStatusOutbox;
+    private TransactionTemplate transactionTemplate;
+    private TransactionIdGenerator transactionIdGenerator;
+    private Statistics statistics;
+    private CardValidationResponse cardValidation;
+
+    private long nextOrderId = 1;
+    private Payment processing;
+    private long statementsBefore;
+    private long statements;
+    private long completions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Command line arguments, since builder properties are only defaults that
+        // application.properties overrides
+        context = new SpringApplicationBuilder(PaymentApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:write-path;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.payment=WARN",
+                        // Keep the relay from issuing statements of its own during the measurement
+                        "--order.outbox.poll-interval-ms=3600000");
+        persistence = context.getBean(PaymentPersistenceService.class);
+        paymentRepository = context.getBean(PaymentRepository.class);
+        orderStatusOutbox = context.getBean(OrderStatusOutbox.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        transactionIdGenerator = context.getBean(TransactionIdGenerator.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        cardValidation = CardValidationResponse.builder()
+                .valid(true)
+                .cardType("VISA")
+                .cardLastFour("4242")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void newProcessingPayment() {
+        PaymentRequest request = PaymentRequest.builder()
+                .orderId(nextOrderId++)
+                .amount(new BigDecimal("129.99"))
+                .currency("USD")
+                .build();
+        processing = persistence.createProcessingPayment(
+                USER, request, cardValidation, transactionIdGenerator.nextTransactionId());
+        statementsBefore = statistics.getPrepareStatementCount();
+    }
+
+    @TearDown(Level.Invocation)
+    public void countStatements() {
+        statements += statistics.getPrepareStatementCount() - statementsBefore;
+        completions++;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements() {
+        System.out.printf("%n%s: %.2f statements per completed payment%n", path, (double) statements / completions);
+        statements = 0;
+        completions = 0;
+    }
+
+    @Benchmark
+    public Payment completePayment() {
+        if ("conditional-update".equals(path)) {
+            return persistence.markCompleted(processing);
+        }
+        Long paymentId = processing.getId();
+        return transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findById(paymentId).orElseThrow();
+            payment.setStatus(PaymentStatus.COMPLETED);
+            orderStatusOutbox.enqueue(payment, "PROCESSING");
+            return paymentRepository.save(payment);
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.service.PaymentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code PaymentServiceImpl.processPayment} end to end: the real application
+ * context on in-memory H2, with the Card and Order services replaced by
+ * {@link StubDownstreamServer}. Every invocation pays for a new order, so the
+ * order lookup cache misses as it would in production. The simulated gateway
+ * step is part of the measurement.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessPaymentBenchmark {
+
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+
+    private StubDownstreamServer downstream;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        downstream = new StubDownstreamServer();
+        // Command line arguments, since builder properties are only defaults that
+        // application.properties overrides
+        context = new SpringApplicationBuilder(PaymentApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.payment=WARN",
+                        "--card.service.base-url=" + downstream.baseUrl(),
+                        "--order.service.base-url=" + downstream.baseUrl());
+        paymentService = context.getBean(PaymentService.class);
+        token = JwtTokens.mint(context.getEnvironment().getRequiredProperty("jwt.secret"), "benchmark-user");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        downstream.close();
+    }
+
+    @Benchmark
+    public PaymentResponse processPayment() {
+        PaymentRequest request = PaymentRequest.builder()
+                .orderId(nextOrderId.getAndIncrement())
+                .amount(new BigDecimal("129.99"))
+                .currency("USD")
+                .cardDetails(PaymentRequest.CardDetails.builder()
+                        .cardNumber("4242424242424242")
+                        .cardHolderName("Benchmark User")
+                        .expiryMonth("12")
+                        .expiryYear("2030")
+                        .cvv("123")
+                        .build())
+                .build();
+        return paymentService.processPayment("benchmark-user", token, request);
+    }
+}
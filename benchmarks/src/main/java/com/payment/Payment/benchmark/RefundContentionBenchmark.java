@@ -0,0 +1,136 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.dto.request.RefundRequest;
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.RefundStatus;
+import com.payment.Payment.repository.RefundRepository;
+import com.payment.Payment.resilience.ConflictRetryPolicy;
+import com.payment.Payment.service.PaymentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 50 threads taking small partial refunds off the same payment, which is the
+ * worst case for the optimistic version check on the refundable balance. The
+ * gateway answers immediately so the measurement is the reserve and complete
+ * transactions and their retries. After each iteration the payment's running
+ * balance is checked against its refund ledger, and the number of retried and
+ * abandoned writes is printed.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(50)
+@State(Scope.Benchmark)
+public class RefundContentionBenchmark {
+
+    private static final String USER = "benchmark-user";
+    private static final BigDecimal PAYMENT_AMOUNT = new BigDecimal("99999999.99");
+    private static final BigDecimal REFUND_AMOUNT = new BigDecimal("0.01");
+
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    private final AtomicLong abandoned = new AtomicLong();
+
+    private StubDownstreamServer downstream;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private RefundRepository refundRepository;
+    private ConflictRetryPolicy conflictRetryPolicy;
+    private String token;
+    private Long paymentId;
+    private long retriesBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        downstream = new StubDownstreamServer();
+        // Command line arguments, since builder properties are only defaults that
+        // application.properties overrides
+        context = new SpringApplicationBuilder(PaymentApplication.class)
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:refund-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.h2.console.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.payment=WARN",
+                        "--card.service.base-url=" + downstream.baseUrl(),
+                        "--order.service.base-url=" + downstream.baseUrl(),
+                        "--payment.gateway.simulator.median-latency=0ms");
+        paymentService = context.getBean(PaymentService.class);
+        refundRepository = context.getBean(RefundRepository.class);
+        conflictRetryPolicy = context.getBean(ConflictRetryPolicy.class);
+        token = JwtTokens.mint(context.getEnvironment().getRequiredProperty("jwt.secret"), USER);
+    }
+
+    @Setup(Level.Iteration)
+    public void newPayment() {
+        PaymentRequest request = PaymentRequest.builder()
+                .orderId(nextOrderId.getAndIncrement())
+                .amount(PAYMENT_AMOUNT)
+                .currency("USD")
+                .cardDetails(PaymentRequest.CardDetails.builder()
+                        .cardNumber("4242424242424242")
+                        .cardHolderName("Benchmark User")
+                        .expiryMonth("12")
+                        .expiryYear("2030")
+                        .cvv("123")
+                        .build())
+                .build();
+        paymentId = paymentService.processPayment(USER, token, request).getId();
+        retriesBefore = conflictRetryPolicy.getRetries();
+        abandoned.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkLedger() {
+        PaymentResponse payment = paymentService.getPaymentById(paymentId, USER);
+        long completed = refundRepository.countByPaymentIdAndStatus(paymentId, RefundStatus.COMPLETED);
+        long pending = refundRepository.countByPaymentIdAndStatus(paymentId, RefundStatus.PENDING);
+        BigDecimal ledger = REFUND_AMOUNT.multiply(BigDecimal.valueOf(completed + pending));
+        if (payment.getRefundedAmount().compareTo(ledger) != 0) {
+            throw new IllegalStateException("Refunded amount " + payment.getRefundedAmount()
+                    + " does not match the ledger total " + ledger);
+        }
+        System.out.printf("%n%d refunds, %d writes retried, %d refunds abandoned after the last attempt%n",
+                completed, conflictRetryPolicy.getRetries() - retriesBefore, abandoned.get());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        downstream.close();
+    }
+
+    @Benchmark
+    public PaymentResponse refundOnePayment() {
+        try {
+            return paymentService.refundPayment(USER, new RefundRequest(paymentId, REFUND_AMOUNT, null));
+        } catch (OptimisticLockingFailureException e) {
+            abandoned.incrementAndGet();
+            return null;
+        }
+    }
+}
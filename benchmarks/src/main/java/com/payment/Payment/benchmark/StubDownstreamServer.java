@@ -0,0 +1,101 @@
+package com.payment.Payment.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for the Card and Order services. Every card is valid and every
+ * order exists. Each service can be given a {@link Profile} that adds latency
+ * and fails a share of calls with 503; without one the stubs answer immediately,
+ * so the benchmarks measure the payment service rather than the stubs.
+ */
+public class StubDownstreamServer implements AutoCloseable {
+
+    /**
+     * Latency of {@code latencyMillis} plus up to {@code jitterMillis}, and a
+     * probability in [0, 1] of answering 503.
+     */
+    public record Profile(long latencyMillis, long jitterMillis, double errorRate) {
+
+        public static final Profile NONE = new Profile(0, 0, 0);
+
+        void apply(HttpExchange exchange, Handler handler) throws IOException {
+            long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 503, "{\"message\":\"Injected failure\"}");
+                return;
+            }
+            handler.handle(exchange);
+        }
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private static final String CARD_VALIDATION =
+            "{\"valid\":true,\"cardType\":\"VISA\",\"cardLastFour\":\"4242\",\"message\":\"Card is valid\"}";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public StubDownstreamServer() throws IOException {
+        this(Profile.NONE, Profile.NONE);
+    }
+
+    public StubDownstreamServer(Profile cardProfile, Profile orderProfile) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        // Unbounded so injected latency delays calls without queueing them behind each other
+        executor = Executors.newCachedThreadPool();
+        server.createContext("/api/cards/validate",
+                exchange -> cardProfile.apply(exchange, ex -> respond(ex, 200, CARD_VALIDATION)));
+        server.createContext("/api/orders/", exchange -> orderProfile.apply(exchange, ex -> {
+            if ("GET".equals(ex.getRequestMethod())) {
+                String path = ex.getRequestURI().getPath();
+                String orderId = path.substring(path.lastIndexOf('/') + 1);
+                respond(ex, 200, "{\"id\":" + orderId + ",\"status\":\"PENDING\"}");
+            } else {
+                respond(ex, 204, null);
+            }
+        }));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+}
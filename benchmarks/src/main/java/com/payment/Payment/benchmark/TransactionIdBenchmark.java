@@ -0,0 +1,59 @@
+package com.payment.Payment.benchmark;
+
+import com.payment.Payment.util.TransactionIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TransactionIdGenerator} against the UUID-substring ids it replaced,
+ * single-threaded and with eight threads sharing one generator. Run with
+ * {@code -prof gc} to compare allocation per id.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionIdBenchmark {
+
+    private final TransactionIdGenerator generator = new TransactionIdGenerator(1);
+
+    @Benchmark
+    public String uuidSubstring() {
+        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidSubstringContended() {
+        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Benchmark
+    public long generatorId() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String generatorTransactionId() {
+        return generator.nextTransactionId();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String generatorTransactionIdContended() {
+        return generator.nextTransactionId();
+    }
+}
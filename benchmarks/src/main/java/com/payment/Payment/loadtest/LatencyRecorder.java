@@ -0,0 +1,60 @@
+package com.payment.Payment.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one endpoint. Every latency is kept so percentiles
+ * are exact; a run of a few minutes at a few thousand requests per second fits
+ * comfortably in memory.
+ */
+final class LatencyRecorder {
+
+    private final String name;
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    synchronized void record(long latencyNanos, String outcome) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        outcomes.merge(outcome, 1L, Long::sum);
+    }
+
+    synchronized String report(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long succeeded = outcomes.entrySet().stream()
+                .filter(entry -> entry.getKey().startsWith("2"))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+
+        StringBuilder report = new StringBuilder(String.format(
+                "%-28s %8d req %9.1f req/s %9.1f ok/s   p50 %8.2f ms   p99 %8.2f ms   p999 %8.2f ms   max %8.2f ms%n",
+                name, count, count / seconds, succeeded / seconds,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(count == 0 ? 0 : sorted[count - 1])));
+        outcomes.forEach((outcome, total) -> report.append(String.format(
+                "    %-24s %8d (%5.2f%%)%n", outcome, total, 100.0 * total / count)));
+        return report.toString();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
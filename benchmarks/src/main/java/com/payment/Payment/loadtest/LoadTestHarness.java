@@ -0,0 +1,297 @@
+package com.payment.Payment.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.benchmark.JwtTokens;
+import com.payment.Payment.benchmark.StubDownstreamServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for capacity planning. Starts the real application on
+ * a throwaway H2 database next to stub Card and Order services, then sends
+ * payments and refunds at a fixed arrival rate regardless of how fast responses
+ * come back. Latency is measured from each request's scheduled start, so a
+ * stalled server shows up in the percentiles instead of slowing the load down.
+ *
+ * <pre>
+ * mvn -f benchmarks/pom.xml package exec:exec@load-test -Dload.args="--rate=200 --duration=120"
+ * </pre>
+ */
+public final class LoadTestHarness {
+
+    private static final String PAYMENTS = "POST /api/payments";
+    private static final String REFUNDS = "POST /api/payments/refund";
+
+    private final LoadTestOptions options;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    private final ConcurrentLinkedQueue<CompletedPayment> refundable = new ConcurrentLinkedQueue<>();
+    private final Semaphore inFlight;
+
+    private String baseUrl;
+    private List<String> tokens;
+
+    private record CompletedPayment(long paymentId, String token) {
+    }
+
+    private LoadTestHarness(LoadTestOptions options, ExecutorService clientExecutor) {
+        this.options = options;
+        this.inFlight = new Semaphore(options.maxInFlight());
+        this.client = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        Path dataDir = Files.createTempDirectory("payment-load-test");
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(
+                Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+        try (StubDownstreamServer downstream = new StubDownstreamServer(options.cardProfile(), options.orderProfile());
+             ConfigurableApplicationContext app = startApplication(options, downstream, dataDir)) {
+            LoadTestHarness harness = new LoadTestHarness(options, clientExecutor);
+            harness.baseUrl = "http://127.0.0.1:" + app.getEnvironment().getRequiredProperty("local.server.port");
+            harness.tokens = mintTokens(app.getEnvironment().getRequiredProperty("jwt.secret"), options.users());
+
+            String load = options.concurrency() > 0
+                    ? options.concurrency() + " concurrent clients"
+                    : String.format("%.0f req/s (%s arrivals)", options.rate(), options.poisson() ? "poisson" : "uniform");
+            System.out.printf("Warming up for %ds at %s%n", options.warmup().toSeconds(), load);
+            harness.run(options.warmup(), null, null);
+
+            System.out.printf("Measuring for %ds at %s (card %s, order %s, %d DB connections, %s threads)%n",
+                    options.duration().toSeconds(), load, options.cardProfile(), options.orderProfile(),
+                    options.dbPoolSize(), options.virtualThreads() ? "virtual" : "platform");
+            LatencyRecorder payments = new LatencyRecorder(PAYMENTS);
+            LatencyRecorder refunds = new LatencyRecorder(REFUNDS);
+            long started = System.nanoTime();
+            harness.run(options.duration(), payments, refunds);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            System.out.println();
+            System.out.print(payments.report(seconds));
+            System.out.print(refunds.report(seconds));
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options,
+                                                                   StubDownstreamServer downstream, Path dataDir) {
+        List<String> properties = new ArrayList<>(List.of(logging(options.appLogging())));
+        properties.addAll(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("paymentdb"),
+                "spring.datasource.hikari.maximum-pool-size=" + options.dbPoolSize(),
+                "spring.threads.virtual.enabled=" + options.virtualThreads(),
+                "spring.h2.console.enabled=false",
+                "card.service.base-url=" + downstream.baseUrl(),
+                "order.service.base-url=" + downstream.baseUrl(),
+                "payment.gateway.simulator.median-latency=" + options.gatewayMedianMillis() + "ms",
+                "payment.gateway.simulator.p99-latency=" + options.gatewayP99Millis() + "ms",
+                "payment.gateway.simulator.decline-rate=" + options.gatewayDeclineRate()));
+        // Command line arguments, since builder properties are only defaults that
+        // application.properties and the prod profile override
+        return new SpringApplicationBuilder(PaymentApplication.class)
+                .profiles("prod".equals(options.appLogging()) ? new String[] {"prod"} : new String[0])
+                .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * quiet keeps the application's own logging out of the measurement; verbose is
+     * what the default configuration used to ship (every statement and every
+     * payment logged) and prod leaves logging to the prod profile.
+     */
+    private static String[] logging(String appLogging) {
+        return switch (appLogging) {
+            case "verbose" -> new String[] {
+                    "spring.jpa.show-sql=true",
+                    "logging.level.com.payment=DEBUG",
+                    "payment.logging.success-sample-rate=1.0"};
+            case "prod" -> new String[0];
+            default -> new String[] {
+                    "spring.jpa.show-sql=false",
+                    "logging.level.root=WARN",
+                    "logging.level.com.payment=WARN"};
+        };
+    }
+
+    private static List<String> mintTokens(String secret, int users) {
+        List<String> tokens = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            tokens.add(JwtTokens.mint(secret, "load-user-" + i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Issues arrivals for {@code duration} and waits for the responses. Outcomes
+     * are discarded when the recorders are null, as during warm-up.
+     */
+    private void run(Duration duration, LatencyRecorder payments, LatencyRecorder refunds)
+            throws InterruptedException {
+        if (options.concurrency() > 0) {
+            runClosed(duration, payments, refunds);
+            return;
+        }
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double next = start;
+
+        while (next < end) {
+            long scheduled = (long) next;
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            CompletedPayment toRefund = ThreadLocalRandom.current().nextDouble() < options.refundRatio()
+                    ? refundable.poll()
+                    : null;
+            if (toRefund != null) {
+                send(refundRequest(toRefund), scheduled, refunds, null);
+            } else {
+                String token = tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+                send(paymentRequest(token), scheduled, payments, token);
+            }
+
+            next += options.poisson()
+                    ? -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+        }
+
+        // Let outstanding requests finish before the next phase
+        inFlight.acquire(options.maxInFlight());
+        inFlight.release(options.maxInFlight());
+    }
+
+    /**
+     * Closed model: a fixed number of clients, each sending its next request as
+     * soon as the previous one is answered, so exactly that many requests are
+     * outstanding. Latency is measured from each request's send.
+     */
+    private void runClosed(Duration duration, LatencyRecorder payments, LatencyRecorder refunds)
+            throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        CountDownLatch finished = new CountDownLatch(options.concurrency());
+        for (int i = 0; i < options.concurrency(); i++) {
+            sendUntil(end, tokens.get(i % tokens.size()), payments, refunds, finished);
+        }
+        finished.await();
+    }
+
+    private void sendUntil(long end, String token, LatencyRecorder payments, LatencyRecorder refunds,
+                           CountDownLatch finished) {
+        long started = System.nanoTime();
+        if (started >= end) {
+            finished.countDown();
+            return;
+        }
+        CompletedPayment toRefund = ThreadLocalRandom.current().nextDouble() < options.refundRatio()
+                ? refundable.poll()
+                : null;
+        HttpRequest request = toRefund != null ? refundRequest(toRefund) : paymentRequest(token);
+        LatencyRecorder recorder = toRefund != null ? refunds : payments;
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    handle(response, error, started, recorder, toRefund != null ? null : token);
+                    sendUntil(end, token, payments, refunds, finished);
+                });
+    }
+
+    private void send(HttpRequest request, long scheduled, LatencyRecorder recorder, String paymentToken) {
+        if (!inFlight.tryAcquire()) {
+            record(recorder, scheduled, "client_overloaded");
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    inFlight.release();
+                    handle(response, error, scheduled, recorder, paymentToken);
+                });
+    }
+
+    private void handle(HttpResponse<String> response, Throwable error, long started, LatencyRecorder recorder,
+                        String paymentToken) {
+        if (error != null) {
+            record(recorder, started, rootCause(error).getClass().getSimpleName());
+            return;
+        }
+        record(recorder, started, Integer.toString(response.statusCode()));
+        if (paymentToken != null && response.statusCode() == 201) {
+            rememberForRefund(response.body(), paymentToken);
+        }
+    }
+
+    private void record(LatencyRecorder recorder, long scheduled, String outcome) {
+        if (recorder != null) {
+            recorder.record(System.nanoTime() - scheduled, outcome);
+        }
+    }
+
+    private void rememberForRefund(String body, String token) {
+        try {
+            JsonNode payment = objectMapper.readTree(body);
+            refundable.add(new CompletedPayment(payment.get("id").asLong(), token));
+        } catch (IOException e) {
+            // Not refundable then; the payment itself was still recorded
+        }
+    }
+
+    private HttpRequest paymentRequest(String token) {
+        String body = String.format(
+                "{\"orderId\":%d,\"amount\":49.99,\"currency\":\"USD\",\"cardDetails\":{"
+                        + "\"cardNumber\":\"4242424242424242\",\"cardHolderName\":\"Load Test\","
+                        + "\"expiryMonth\":\"12\",\"expiryYear\":\"2030\",\"cvv\":\"123\"}}",
+                nextOrderId.getAndIncrement());
+        return post("/api/payments", token, body);
+    }
+
+    private HttpRequest refundRequest(CompletedPayment payment) {
+        String body = String.format("{\"paymentId\":%d,\"reason\":\"load test\"}", payment.paymentId());
+        return post("/api/payments/refund", payment.token(), body);
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
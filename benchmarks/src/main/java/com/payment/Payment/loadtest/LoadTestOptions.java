@@ -0,0 +1,82 @@
+package com.payment.Payment.loadtest;
+
+import com.payment.Payment.benchmark.StubDownstreamServer.Profile;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Command line options of {@link LoadTestHarness}, given as {@code --name=value}.
+ */
+record LoadTestOptions(
+        double rate,
+        Duration warmup,
+        Duration duration,
+        double refundRatio,
+        int users,
+        boolean poisson,
+        int maxInFlight,
+        int concurrency,
+        int dbPoolSize,
+        boolean virtualThreads,
+        Profile cardProfile,
+        Profile orderProfile,
+        long gatewayMedianMillis,
+        long gatewayP99Millis,
+        double gatewayDeclineRate,
+        String appLogging) {
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions(
+                number(values, "rate", 50),
+                Duration.ofSeconds((long) number(values, "warmup", 10)),
+                Duration.ofSeconds((long) number(values, "duration", 60)),
+                number(values, "refund-ratio", 0.1),
+                (int) number(values, "users", 50),
+                !"uniform".equals(values.remove("arrivals")),
+                (int) number(values, "max-in-flight", 10_000),
+                (int) number(values, "concurrency", 0),
+                (int) number(values, "db-pool-size", 10),
+                Boolean.parseBoolean(values.remove("virtual-threads")),
+                profile(values, "card"),
+                profile(values, "order"),
+                (long) number(values, "gateway-median", 100),
+                (long) number(values, "gateway-p99", 100),
+                number(values, "gateway-decline-rate", 0),
+                Objects.requireNonNullElse(values.remove("app-logging"), "quiet"));
+        if (!List.of("quiet", "verbose", "prod").contains(options.appLogging())) {
+            throw new IllegalArgumentException("--app-logging must be quiet, verbose or prod");
+        }
+        if (options.virtualThreads() && Runtime.version().feature() < 21) {
+            throw new IllegalArgumentException("--virtual-threads=true needs JDK 21 or later");
+        }
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        return options;
+    }
+
+    private static Profile profile(Map<String, String> values, String service) {
+        return new Profile(
+                (long) number(values, service + "-latency", 20),
+                (long) number(values, service + "-jitter", 10),
+                number(values, service + "-error-rate", 0));
+    }
+
+    private static double number(Map<String, String> values, String name, double defaultValue) {
+        String value = values.remove(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,165 @@
+package com.payment.Payment.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.payment.Payment.exception.ServiceCommunicationException;
+import com.payment.Payment.service.OrderServiceClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Short-lived cache in front of {@link OrderServiceClient#getOrder}. Concurrent
+ * lookups of the same order share a single in-flight call: the first caller
+ * performs it on its own thread and the others wait on the same future.
+ * Failures are cached for a shorter time so a missing order or an outage cannot
+ * cause a stampede of retries, except those of lookups whose caller was
+ * interrupted: they are dropped and anyone waiting on them tries again.
+ */
+@Component
+@Slf4j
+public class OrderLookupCache {
+
+    private final OrderServiceClient orderServiceClient;
+    private final AsyncCache<OrderKey, OrderLookup> lookups;
+
+    public OrderLookupCache(OrderServiceClient orderServiceClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${payment.order-cache.max-size:10000}") long maxSize,
+                            @Value("${payment.order-cache.ttl:5s}") Duration ttl,
+                            @Value("${payment.order-cache.failure-ttl:1s}") Duration failureTtl) {
+        this.orderServiceClient = orderServiceClient;
+        this.lookups = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new LookupExpiry(ttl.toNanos(), failureTtl.toNanos()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, lookups.synchronous(), "orders");
+    }
+
+    /**
+     * Returns the order as seen by {@code userId}. Entries are scoped per user so
+     * one caller's token never answers for another's.
+     *
+     * @throws ServiceCommunicationException if the order could not be fetched
+     */
+    public Map<String, Object> getOrder(Long orderId, String userId, String jwtToken) {
+        OrderKey key = new OrderKey(orderId, userId);
+        while (true) {
+            CompletableFuture<OrderLookup> pending = new CompletableFuture<>();
+            CompletableFuture<OrderLookup> shared = lookups.asMap().putIfAbsent(key, pending);
+            boolean owner = shared == null;
+
+            if (owner) {
+                shared = pending;
+                try {
+                    pending.complete(load(orderId, jwtToken));
+                } catch (RuntimeException e) {
+                    pending.completeExceptionally(e);
+                }
+            } else {
+                log.debug("Joining in-flight or cached lookup of order {}", orderId);
+            }
+
+            OrderLookup lookup;
+            try {
+                lookup = shared.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof AbandonedLookupException abandoned) {
+                    if (owner) {
+                        throw abandoned.getCause();
+                    }
+                    // Its caller was cancelled, which says nothing about the order
+                    lookups.asMap().remove(key, shared);
+                    continue;
+                }
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            }
+            if (lookup.failureMessage() != null) {
+                throw new ServiceCommunicationException(lookup.failureMessage());
+            }
+            return lookup.order();
+        }
+    }
+
+    /**
+     * Fetches the order, turning a failure into a cacheable result unless the
+     * calling thread was interrupted, e.g. by {@code Future.cancel(true)} after a
+     * sibling card validation failed. Failed futures are not cached.
+     */
+    private OrderLookup load(Long orderId, String jwtToken) {
+        try {
+            return new OrderLookup(orderServiceClient.getOrder(orderId, jwtToken), null);
+        } catch (ServiceCommunicationException e) {
+            if (Thread.currentThread().isInterrupted() || causedByInterruption(e)) {
+                throw new AbandonedLookupException(e);
+            }
+            return new OrderLookup(null, e.getMessage());
+        }
+    }
+
+    private static boolean causedByInterruption(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException
+                    || cause instanceof InterruptedIOException
+                    || cause instanceof ClosedByInterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record OrderKey(Long orderId, String userId) {
+    }
+
+    private record OrderLookup(Map<String, Object> order, String failureMessage) {
+    }
+
+    private static final class AbandonedLookupException extends RuntimeException {
+
+        private AbandonedLookupException(ServiceCommunicationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ServiceCommunicationException getCause() {
+            return (ServiceCommunicationException) super.getCause();
+        }
+    }
+
+    private static final class LookupExpiry implements Expiry<OrderKey, OrderLookup> {
+
+        private final long ttlNanos;
+        private final long failureTtlNanos;
+
+        private LookupExpiry(long ttlNanos, long failureTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.failureTtlNanos = failureTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(OrderKey key, OrderLookup lookup, long currentTime) {
+            return lookup.failureMessage() == null ? ttlNanos : failureTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(OrderKey key, OrderLookup lookup, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, lookup, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(OrderKey key, OrderLookup lookup, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
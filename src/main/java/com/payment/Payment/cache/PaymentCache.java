@@ -0,0 +1,106 @@
+package com.payment.Payment.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.util.PaymentMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Bounded read-through cache of payment responses keyed by payment id and by order id.
+ * Writers evict entries after their transaction commits. A load that raced with the
+ * commit is evicted too, because Caffeine makes the eviction wait for the in-flight
+ * load of the same key.
+ */
+@Component
+public class PaymentCache {
+
+    private final PaymentMapper paymentMapper;
+    private final Cache<Long, CachedPayment> paymentsById;
+    private final Cache<Long, CachedPayment> paymentsByOrderId;
+
+    public PaymentCache(PaymentMapper paymentMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${payment.cache.max-size:10000}") long maxSize,
+                        @Value("${payment.cache.ttl:30s}") Duration ttl) {
+        this.paymentMapper = paymentMapper;
+        this.paymentsById = newCache(maxSize, ttl);
+        this.paymentsByOrderId = newCache(maxSize, ttl);
+        CaffeineCacheMetrics.monitor(meterRegistry, paymentsById, "payments.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, paymentsByOrderId, "payments.by-order-id");
+    }
+
+    /**
+     * Returns the cached payment or loads it. The loader is expected to throw when
+     * the payment does not exist for {@code userId}; entries cached for a different
+     * user are treated the same way via {@code notFound}.
+     */
+    public PaymentResponse getById(Long paymentId, String userId, Supplier<Payment> loader,
+                                   Supplier<RuntimeException> notFound) {
+        CachedPayment cached = paymentsById.get(paymentId, id -> toCached(loader.get()));
+        return visibleTo(cached, userId, notFound);
+    }
+
+    public PaymentResponse getByOrderId(Long orderId, String userId, Supplier<Payment> loader,
+                                        Supplier<RuntimeException> notFound) {
+        CachedPayment cached = paymentsByOrderId.get(orderId, id -> toCached(loader.get()));
+        return visibleTo(cached, userId, notFound);
+    }
+
+    /**
+     * Evicts the payment once the surrounding transaction commits, or immediately
+     * when there is no transaction.
+     */
+    public void evictAfterCommit(Payment payment) {
+        Long paymentId = payment.getId();
+        Long orderId = payment.getOrderId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(paymentId, orderId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(paymentId, orderId);
+            }
+        });
+    }
+
+    private void evict(Long paymentId, Long orderId) {
+        if (paymentId != null) {
+            paymentsById.invalidate(paymentId);
+        }
+        paymentsByOrderId.invalidate(orderId);
+    }
+
+    private CachedPayment toCached(Payment payment) {
+        return new CachedPayment(payment.getUserId(), paymentMapper.toResponse(payment));
+    }
+
+    private static PaymentResponse visibleTo(CachedPayment cached, String userId, Supplier<RuntimeException> notFound) {
+        if (!cached.userId().equals(userId)) {
+            throw notFound.get();
+        }
+        return cached.response();
+    }
+
+    private static Cache<Long, CachedPayment> newCache(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    private record CachedPayment(String userId, PaymentResponse response) {
+    }
+}
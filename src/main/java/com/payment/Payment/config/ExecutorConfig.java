@@ -0,0 +1,78 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.logging.MdcTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    @Value("${payment.downstream.pool-size:32}")
+    private int downstreamPoolSize;
+
+    @Value("${payment.downstream.queue-capacity:256}")
+    private int downstreamQueueCapacity;
+
+    @Value("${payment.downstream.virtual-concurrency-limit:1000}")
+    private int downstreamVirtualConcurrencyLimit;
+
+    @Value("${payment.async.workers:8}")
+    private int asyncWorkers;
+
+    @Value("${payment.async.queue-capacity:500}")
+    private int asyncQueueCapacity;
+
+    /**
+     * Executor used to fan out independent downstream calls. On platform threads it
+     * is a bounded pool where the calling thread runs the task itself once saturated.
+     * With {@code spring.threads.virtual.enabled} every task gets its own virtual
+     * thread, throttled by a concurrency limit instead of a pool size.
+     */
+    @Bean
+    public AsyncTaskExecutor downstreamExecutor() {
+        if (virtualThreadsEnabled) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("downstream-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(downstreamVirtualConcurrencyLimit);
+            executor.setTaskDecorator(new MdcTaskDecorator());
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(downstreamPoolSize);
+        executor.setMaxPoolSize(downstreamPoolSize);
+        executor.setQueueCapacity(downstreamQueueCapacity);
+        executor.setThreadNamePrefix("downstream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+
+    /**
+     * Worker pool for payments accepted through the asynchronous endpoint. Admission
+     * is bounded by {@code PaymentSubmissionQueue}, so the queue here never rejects
+     * work outside of shutdown.
+     */
+    @Bean
+    public AsyncTaskExecutor paymentWorkerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncWorkers);
+        executor.setMaxPoolSize(asyncWorkers);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("payment-worker-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        return executor;
+    }
+}
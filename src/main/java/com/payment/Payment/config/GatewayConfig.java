@@ -0,0 +1,31 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.gateway.LatencyDistribution;
+import com.payment.Payment.gateway.PaymentGateway;
+import com.payment.Payment.gateway.SimulatedPaymentGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class GatewayConfig {
+
+    /**
+     * The local simulator, used unless {@code payment.gateway.provider} selects a
+     * real gateway, which then provides its own {@link PaymentGateway} bean.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "payment.gateway.provider", havingValue = "simulator", matchIfMissing = true)
+    public PaymentGateway simulatedPaymentGateway(
+            @Value("${payment.gateway.simulator.median-latency:100ms}") Duration medianLatency,
+            @Value("${payment.gateway.simulator.p99-latency:100ms}") Duration p99Latency,
+            @Value("${payment.gateway.simulator.decline-rate:0}") double declineRate,
+            @Value("${payment.gateway.simulator.error-rate:0}") double errorRate,
+            @Value("${payment.gateway.simulator.threads:2}") int threads) {
+        return new SimulatedPaymentGateway(
+                new LatencyDistribution(medianLatency, p99Latency), declineRate, errorRate, threads);
+    }
+}
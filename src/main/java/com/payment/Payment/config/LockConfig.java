@@ -0,0 +1,18 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.util.StripedLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class LockConfig {
+
+    @Value("${payment.order-lock.stripes:256}")
+    private int orderLockStripes;
+
+    @Bean
+    public StripedLock orderLocks() {
+        return new StripedLock(orderLockStripes);
+    }
+}
@@ -0,0 +1,47 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.metrics.CachedCount;
+import com.payment.Payment.repository.OrderStatusEventRepository;
+import com.payment.Payment.service.PaymentSubmissionQueue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Gauges for the in-process queues in front of downstream work. Connection pools,
+ * circuit breakers and bulkheads are bound next to their beans, and the
+ * {@code ThreadPoolTaskExecutor} beans are picked up by Spring Boot's executor metrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder paymentQueueMetrics(PaymentSubmissionQueue paymentSubmissionQueue,
+                                           OrderStatusEventRepository orderStatusEventRepository,
+                                           @Value("${payment.metrics.outbox-pending-refresh:15s}")
+                                           Duration outboxPendingRefresh) {
+        // Counting the outbox is a table scan, so scrapes share one count per refresh
+        CachedCount outboxPending = new CachedCount(orderStatusEventRepository::count, outboxPendingRefresh);
+        CachedCount outboxParked = new CachedCount(orderStatusEventRepository::countByNextAttemptAtIsNull,
+                outboxPendingRefresh);
+        return registry -> {
+            Gauge.builder("payment.async.queue.available", paymentSubmissionQueue,
+                            PaymentSubmissionQueue::getAvailableSlots)
+                    .description("Free slots for asynchronously submitted payments")
+                    .register(registry);
+            Gauge.builder("payment.async.queue.capacity", paymentSubmissionQueue, PaymentSubmissionQueue::getCapacity)
+                    .description("Total slots for asynchronously submitted payments")
+                    .register(registry);
+            Gauge.builder("payment.outbox.pending", outboxPending, CachedCount::get)
+                    .description("Order status updates not yet delivered to the Order service")
+                    .register(registry);
+            Gauge.builder("payment.outbox.parked", outboxParked, CachedCount::get)
+                    .description("Order status updates given up on after exhausting their attempts")
+                    .register(registry);
+        };
+    }
+}
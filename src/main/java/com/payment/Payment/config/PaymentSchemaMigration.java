@@ -0,0 +1,106 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Brings rows written by earlier versions in line with the current schema.
+ * Depending on the EntityManagerFactory guarantees the schema update has run, and
+ * running during singleton creation guarantees no request has been served yet.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentSchemaMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    void migrate() {
+        alignSequenceWithExistingRows();
+        widenEnumColumn("payments", "status", PaymentStatus.class);
+        backfillActiveOrderIds();
+        dropStoredUserTokens();
+    }
+
+    /**
+     * Moves the payment id sequence past ids that were assigned by the old IDENTITY
+     * column. Hibernate's pooled optimizer treats each sequence value as the upper
+     * end of a block, so the sequence has to hand out at least one allocation block
+     * above the highest existing id. Once it does, it is left alone: restarting it
+     * again could move it back into a block another instance is still using.
+     */
+    private void alignSequenceWithExistingRows() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM payments", Long.class);
+        if (maxId == null || maxId == 0) {
+            return;
+        }
+        long restartWith = maxId + Payment.ID_ALLOCATION_SIZE;
+        Long nextValue = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = UPPER(?)",
+                Long.class, Payment.ID_SEQUENCE);
+        if (nextValue != null && nextValue >= restartWith) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + Payment.ID_SEQUENCE + " RESTART WITH " + restartWith);
+        log.info("Restarted {} at {} (highest payment id {})", Payment.ID_SEQUENCE, restartWith, maxId);
+    }
+
+    /**
+     * Hibernate maps enums to an H2 ENUM column listing the constants known when
+     * the table was created, and the schema update never widens it, so a status
+     * added later, such as PARTIALLY_REFUNDED, could not be stored. Redefines the
+     * column with every current constant, in the order Hibernate creates them in.
+     */
+    private void widenEnumColumn(String table, String column, Class<? extends Enum<?>> type) {
+        List<String> permitted = jdbcTemplate.queryForList(
+                "SELECT e.VALUE_NAME FROM INFORMATION_SCHEMA.ENUM_VALUES e"
+                        + " JOIN INFORMATION_SCHEMA.COLUMNS c ON c.TABLE_SCHEMA = e.OBJECT_SCHEMA"
+                        + " AND c.TABLE_NAME = e.OBJECT_NAME AND c.DTD_IDENTIFIER = e.ENUM_IDENTIFIER"
+                        + " WHERE c.TABLE_SCHEMA = SCHEMA() AND c.TABLE_NAME = UPPER(?) AND c.COLUMN_NAME = UPPER(?)",
+                String.class, table, column);
+        List<String> constants = Arrays.stream(type.getEnumConstants()).map(Enum::name).sorted().toList();
+        if (permitted.isEmpty() || permitted.containsAll(constants)) {
+            return;
+        }
+        String values = constants.stream().map(name -> "'" + name + "'").collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " ENUM(" + values + ") NOT NULL");
+        log.info("Widened {}.{} from {} to {}", table, column, permitted, constants);
+    }
+
+    /**
+     * Marks the newest active payment of each order as holding it, so the unique
+     * active_order_id constraint also covers payments created before the column existed.
+     */
+    private void backfillActiveOrderIds() {
+        int updated = jdbcTemplate.update(
+                "UPDATE payments p SET active_order_id = order_id"
+                        + " WHERE active_order_id IS NULL"
+                        + " AND status IN ('PENDING', 'PROCESSING', 'COMPLETED')"
+                        + " AND id = (SELECT MAX(q.id) FROM payments q WHERE q.order_id = p.order_id"
+                        + " AND q.status IN ('PENDING', 'PROCESSING', 'COMPLETED'))"
+                        + " AND NOT EXISTS (SELECT 1 FROM payments r WHERE r.active_order_id = p.order_id)");
+        if (updated > 0) {
+            log.info("Backfilled active_order_id on {} payments", updated);
+        }
+    }
+
+    /**
+     * Outbox events used to carry the paying user's token. The relay now uses the
+     * service's own, so the column and any tokens still in it are dropped.
+     */
+    private void dropStoredUserTokens() {
+        jdbcTemplate.execute("ALTER TABLE order_status_outbox DROP COLUMN IF EXISTS jwt_token");
+    }
+}
@@ -0,0 +1,91 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.resilience.Bulkhead;
+import com.payment.Payment.resilience.CircuitBreaker;
+import com.payment.Payment.resilience.ConflictRetryPolicy;
+import com.payment.Payment.resilience.DownstreamGuard;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public DownstreamGuard cardServiceGuard(
+            @Value("${card.service.breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${card.service.breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${card.service.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${card.service.breaker.open-duration:10s}") Duration openDuration,
+            @Value("${card.service.breaker.half-open-calls:3}") int halfOpenCalls,
+            @Value("${card.service.bulkhead.max-concurrent-calls:25}") int maxConcurrentCalls,
+            @Value("${card.service.bulkhead.max-wait:100ms}") Duration maxWait) {
+        return new DownstreamGuard("Card",
+                new CircuitBreaker("Card", failureRateThreshold, slidingWindowSize, minimumCalls,
+                        openDuration.toNanos(), halfOpenCalls),
+                new Bulkhead(maxConcurrentCalls, maxWait.toNanos()));
+    }
+
+    @Bean
+    public DownstreamGuard orderServiceGuard(
+            @Value("${order.service.breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${order.service.breaker.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${order.service.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${order.service.breaker.open-duration:10s}") Duration openDuration,
+            @Value("${order.service.breaker.half-open-calls:3}") int halfOpenCalls,
+            @Value("${order.service.bulkhead.max-concurrent-calls:25}") int maxConcurrentCalls,
+            @Value("${order.service.bulkhead.max-wait:100ms}") Duration maxWait) {
+        return new DownstreamGuard("Order",
+                new CircuitBreaker("Order", failureRateThreshold, slidingWindowSize, minimumCalls,
+                        openDuration.toNanos(), halfOpenCalls),
+                new Bulkhead(maxConcurrentCalls, maxWait.toNanos()));
+    }
+
+    @Bean
+    public MeterBinder downstreamGuardMetrics(List<DownstreamGuard> guards) {
+        return registry -> {
+            for (DownstreamGuard guard : guards) {
+                CircuitBreaker circuitBreaker = guard.getCircuitBreaker();
+                Bulkhead bulkhead = guard.getBulkhead();
+                Gauge.builder("payment.circuitbreaker.state", circuitBreaker, cb -> cb.getState().ordinal())
+                        .description("Circuit breaker state: 0=closed, 1=open, 2=half-open")
+                        .tag("service", guard.getService())
+                        .register(registry);
+                Gauge.builder("payment.circuitbreaker.failure.rate", circuitBreaker, CircuitBreaker::failureRate)
+                        .description("Failure rate in percent over the sliding window")
+                        .tag("service", guard.getService())
+                        .register(registry);
+                Gauge.builder("payment.bulkhead.available", bulkhead, Bulkhead::getAvailablePermits)
+                        .description("Free concurrent call slots")
+                        .tag("service", guard.getService())
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Retries payment writes that lost an optimistic locking race, such as
+     * concurrent refunds of the same payment.
+     */
+    @Bean
+    public ConflictRetryPolicy conflictRetryPolicy(
+            @Value("${payment.conflict-retry.max-attempts:20}") int maxAttempts,
+            @Value("${payment.conflict-retry.initial-backoff:1ms}") Duration initialBackoff,
+            @Value("${payment.conflict-retry.max-backoff:10ms}") Duration maxBackoff) {
+        return new ConflictRetryPolicy(maxAttempts, initialBackoff.toNanos(), maxBackoff.toNanos());
+    }
+
+    @Bean
+    public MeterBinder conflictRetryMetrics(ConflictRetryPolicy conflictRetryPolicy) {
+        return registry -> FunctionCounter.builder("payment.conflict.retries", conflictRetryPolicy,
+                        ConflictRetryPolicy::getRetries)
+                .description("Payment writes retried after an optimistic locking conflict")
+                .register(registry);
+    }
+}
@@ -1,23 +1,73 @@
 package com.payment.Payment.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
+import java.time.Duration;
+
 @Configuration
 public class RestClientConfig {
 
+    private static final String CARD_SERVICE = "card.service";
+    private static final String ORDER_SERVICE = "order.service";
+
     @Value("${card.service.base-url}")
     private String cardServiceBaseUrl;
 
     @Value("${order.service.base-url}")
     private String orderServiceBaseUrl;
 
+    private final Binder binder;
+
+    public RestClientConfig(Environment environment) {
+        this.binder = Binder.get(environment);
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManager cardServiceConnectionManager() {
+        return connectionManager(CARD_SERVICE);
+    }
+
+    @Bean
+    public PoolingHttpClientConnectionManager orderServiceConnectionManager() {
+        return connectionManager(ORDER_SERVICE);
+    }
+
+    /**
+     * The client owns an idle-connection evictor thread, so it is closed with the
+     * context rather than left to the garbage collector.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient cardServiceHttpClient() {
+        return httpClient(CARD_SERVICE, cardServiceConnectionManager());
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient orderServiceHttpClient() {
+        return httpClient(ORDER_SERVICE, orderServiceConnectionManager());
+    }
+
     @Bean
     public RestClient cardServiceRestClient() {
         return RestClient.builder()
                 .baseUrl(cardServiceBaseUrl)
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(cardServiceHttpClient()))
                 .build();
     }
 
@@ -25,6 +75,66 @@ public class RestClientConfig {
     public RestClient orderServiceRestClient() {
         return RestClient.builder()
                 .baseUrl(orderServiceBaseUrl)
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(orderServiceHttpClient()))
+                .build();
+    }
+
+    @Bean
+    public MeterBinder cardServiceConnectionPoolMetrics() {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(cardServiceConnectionManager(), "card-service");
+    }
+
+    @Bean
+    public MeterBinder orderServiceConnectionPoolMetrics() {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(orderServiceConnectionManager(), "order-service");
+    }
+
+    private PoolingHttpClientConnectionManager connectionManager(String service) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(intProperty(service, "pool.max-connections", 50))
+                .setMaxConnPerRoute(intProperty(service, "pool.max-connections-per-route", 50))
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(service, "connect-timeout", Duration.ofSeconds(2)))
+                        .setSocketTimeout(timeout(service, "response-timeout", Duration.ofSeconds(5)))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
                 .build();
     }
+
+    /**
+     * Builds a client over the given pool. The connection-request timeout bounds
+     * how long a caller waits for a free pooled connection, so a slow downstream
+     * fails requests quickly instead of piling up server threads.
+     */
+    private CloseableHttpClient httpClient(String service, PoolingHttpClientConnectionManager connectionManager) {
+        Duration keepAlive = durationProperty(service, "pool.keep-alive", Duration.ofSeconds(30));
+        Duration idleEviction = durationProperty(service, "pool.idle-eviction", Duration.ofSeconds(30));
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout(service, "connection-request-timeout", Duration.ofSeconds(1)))
+                        .setResponseTimeout(timeout(service, "response-timeout", Duration.ofSeconds(5)))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    TimeValue advertised = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return TimeValue.ofMilliseconds(Math.min(advertised.toMilliseconds(), keepAlive.toMillis()));
+                })
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEviction.toMillis()))
+                .evictExpiredConnections()
+                .build();
+    }
+
+    private int intProperty(String service, String name, int defaultValue) {
+        return binder.bind(service + "." + name, Integer.class).orElse(defaultValue);
+    }
+
+    private Duration durationProperty(String service, String name, Duration defaultValue) {
+        return binder.bind(service + "." + name, Duration.class).orElse(defaultValue);
+    }
+
+    private Timeout timeout(String service, String name, Duration defaultValue) {
+        return Timeout.ofMilliseconds(durationProperty(service, name, defaultValue).toMillis());
+    }
 }
@@ -0,0 +1,51 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.util.TransactionIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+@Configuration
+@Slf4j
+public class TransactionIdConfig {
+
+    @Value("${payment.node-id:-1}")
+    private int nodeId;
+
+    @Value("${payment.node-id-required:false}")
+    private boolean nodeIdRequired;
+
+    /**
+     * Ids from different instances only stay unique while their node ids differ, so
+     * set {@code payment.node-id} per instance when running more than one. Without
+     * it a node id is derived from the host name and process id, which is only fit
+     * for development: two instances can hash to the same 10-bit node id, and a
+     * restarted instance no longer recognizes its own unfinished payments. With
+     * {@code payment.node-id-required}, as in the prod profile, startup fails instead.
+     */
+    @Bean
+    public TransactionIdGenerator transactionIdGenerator() {
+        if (nodeId < 0 && nodeIdRequired) {
+            throw new IllegalStateException("payment.node-id must be set to a value between 0 and "
+                    + TransactionIdGenerator.MAX_NODE_ID + ", unique per instance");
+        }
+        int node = nodeId >= 0 ? nodeId : derivedNodeId();
+        log.info("Generating transaction ids as node {}", node);
+        return new TransactionIdGenerator(node);
+    }
+
+    private static int derivedNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        int hash = (host + ":" + ProcessHandle.current().pid()).hashCode();
+        return (hash ^ (hash >>> 16)) & TransactionIdGenerator.MAX_NODE_ID;
+    }
+}
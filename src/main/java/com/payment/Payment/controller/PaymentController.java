@@ -1,9 +1,13 @@
 package com.payment.Payment.controller;
 
 import com.payment.Payment.dto.ErrorResponse;
+import com.payment.Payment.dto.request.BatchPaymentRequest;
 import com.payment.Payment.dto.request.PaymentRequest;
 import com.payment.Payment.dto.request.RefundRequest;
+import com.payment.Payment.dto.response.BatchPaymentResponse;
+import com.payment.Payment.dto.response.PaymentPageResponse;
 import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.service.IdempotencyService;
 import com.payment.Payment.service.PaymentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,17 +20,25 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -36,31 +48,109 @@ import java.util.List;
 @SecurityRequirement(name = "Bearer Authentication")
 public class PaymentController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String PREFER = "Prefer";
+    private static final String RESPOND_ASYNC = "respond-async";
+
     private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    // The application's mapper, so streamed lines match the JSON of every other endpoint
+    private final JsonMapper jsonMapper;
 
     @PostMapping
-    @Operation(summary = "Process a payment", description = "Validates card and processes payment for an order")
+    @Operation(summary = "Process a payment", description = "Validates card and processes payment for an order. "
+            + "With Prefer: respond-async the payment is accepted as PENDING and processed in the background, "
+            + "as on POST /api/payments/async")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Payment processed successfully",
                     content = @Content(schema = @Schema(implementation = PaymentResponse.class))),
+            @ApiResponse(responseCode = "202", description = "Payment accepted for processing (Prefer: respond-async)",
+                    content = @Content(schema = @Schema(implementation = PaymentResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid request or card validation failed",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
-            @ApiResponse(responseCode = "422", description = "Payment processing failed",
+            @ApiResponse(responseCode = "422", description = "Payment processing failed or Idempotency-Key reused",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Payment queue is full, retry later (Prefer: respond-async)",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     public ResponseEntity<PaymentResponse> processPayment(
             @Valid @RequestBody PaymentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestHeader(value = PREFER, required = false) String prefer,
             Authentication authentication) {
+        // Existing clients expect 201 with the final status, so going asynchronous is opt-in
+        if (prefer != null && prefer.toLowerCase(Locale.ROOT).contains(RESPOND_ASYNC)) {
+            return submitPayment(request, idempotencyKey, authentication);
+        }
         String userId = authentication.getName();
         String jwtToken = (String) authentication.getCredentials();
-        log.info("Payment request from user {} for order {}", userId, request.getOrderId());
+        log.debug("Payment request from user {} for order {}", userId, request.getOrderId());
 
-        PaymentResponse response = paymentService.processPayment(userId, jwtToken, request);
+        PaymentResponse response = idempotencyKey == null
+                ? paymentService.processPayment(userId, jwtToken, request)
+                : idempotencyService.execute(userId, "payment", idempotencyKey, request,
+                        () -> paymentService.processPayment(userId, jwtToken, request));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/async")
+    @Operation(summary = "Submit a payment for asynchronous processing",
+            description = "Records the payment as PENDING and processes it in the background. "
+                    + "Poll GET /api/payments/{id} for the outcome")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Payment accepted for processing",
+                    content = @Content(schema = @Schema(implementation = PaymentResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "422", description = "Payment already exists for the order or Idempotency-Key reused",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "429", description = "Payment queue is full, retry later",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<PaymentResponse> submitPayment(
+            @Valid @RequestBody PaymentRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            Authentication authentication) {
+        String userId = authentication.getName();
+        String jwtToken = (String) authentication.getCredentials();
+        log.debug("Async payment request from user {} for order {}", userId, request.getOrderId());
+
+        PaymentResponse response = idempotencyKey == null
+                ? paymentService.submitPayment(userId, jwtToken, request)
+                : idempotencyService.execute(userId, "payment-async", idempotencyKey, request,
+                        () -> paymentService.submitPayment(userId, jwtToken, request));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/payments/" + response.getId()))
+                .body(response);
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Process a batch of payments",
+            description = "Validates and processes several payments at once, reporting the outcome of each item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results",
+                    content = @Content(schema = @Schema(implementation = BatchPaymentResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid batch request",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<BatchPaymentResponse> processPayments(
+            @Valid @RequestBody BatchPaymentRequest request,
+            Authentication authentication) {
+        String userId = authentication.getName();
+        String jwtToken = (String) authentication.getCredentials();
+        log.debug("Batch payment request from user {} with {} payments", userId, request.getPayments().size());
+
+        BatchPaymentResponse response = paymentService.processPayments(userId, jwtToken, request.getPayments());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping
     @Operation(summary = "Get user's payments", description = "Retrieves all payments for the authenticated user")
     @ApiResponses(value = {
@@ -76,6 +166,53 @@ public class PaymentController {
         return ResponseEntity.ok(payments);
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get a page of user's payments",
+            description = "Keyset-paginated payments, newest first. Pass nextCursor from the previous page to continue")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = PaymentPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<PaymentPageResponse> getUserPaymentsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        String userId = authentication.getName();
+        log.debug("Fetching payment page for user {} after cursor {}", userId, cursor);
+
+        PaymentPageResponse page = paymentService.getUserPaymentsPage(userId, cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/stream", produces = NDJSON)
+    @Operation(summary = "Stream user's payments",
+            description = "Streams all payments for the authenticated user as newline-delimited JSON, newest first")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Payments streamed successfully"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    public ResponseEntity<StreamingResponseBody> streamUserPayments(Authentication authentication) {
+        String userId = authentication.getName();
+        log.debug("Streaming payments for user {}", userId);
+
+        StreamingResponseBody body = outputStream -> paymentService.streamUserPayments(userId, payment -> {
+            try {
+                outputStream.write(jsonMapper.writeValueAsBytes(payment));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get payment by ID", description = "Retrieves a specific payment by its ID")
     @ApiResponses(value = {
@@ -117,7 +254,9 @@ public class PaymentController {
     }
 
     @PostMapping("/refund")
-    @Operation(summary = "Refund a payment", description = "Processes a refund for a completed payment")
+    @Operation(summary = "Refund a payment",
+            description = "Refunds the given amount of a completed payment, or its whole remaining balance "
+                    + "when no amount is given. A payment can be refunded in several parts")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Refund processed successfully",
                     content = @Content(schema = @Schema(implementation = PaymentResponse.class))),
@@ -126,16 +265,23 @@ public class PaymentController {
             @ApiResponse(responseCode = "401", description = "Unauthorized",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
             @ApiResponse(responseCode = "404", description = "Payment not found",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "409", description = "Payment kept being updated by concurrent refunds",
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key reused with a different request",
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     public ResponseEntity<PaymentResponse> refundPayment(
             @Valid @RequestBody RefundRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
             Authentication authentication) {
         String userId = authentication.getName();
-        String jwtToken = (String) authentication.getCredentials();
-        log.info("Refund request from user {} for payment {}", userId, request.getPaymentId());
+        log.debug("Refund request from user {} for payment {}", userId, request.getPaymentId());
 
-        PaymentResponse response = paymentService.refundPayment(userId, jwtToken, request);
+        PaymentResponse response = idempotencyKey == null
+                ? paymentService.refundPayment(userId, request)
+                : idempotencyService.execute(userId, "refund", idempotencyKey, request,
+                        () -> paymentService.refundPayment(userId, request));
         return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,22 @@
+package com.payment.Payment.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentRequest {
+
+    // Items are validated one by one so an invalid item fails alone
+    @NotEmpty(message = "At least one payment is required")
+    @Size(max = 500, message = "A batch can contain at most 500 payments")
+    private List<PaymentRequest> payments;
+}
@@ -1,6 +1,7 @@
 package com.payment.Payment.dto.request;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -19,7 +20,8 @@ public class RefundRequest {
     private Long paymentId;
 
     @DecimalMin(value = "0.01", message = "Refund amount must be greater than 0")
-    private BigDecimal amount; // Optional - if null, full refund
+    @Digits(integer = 8, fraction = 2, message = "Refund amount must have at most 2 decimal places")
+    private BigDecimal amount; // Optional - if null, the remaining refundable balance
 
     private String reason;
 }
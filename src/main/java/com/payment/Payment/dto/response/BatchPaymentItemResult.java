@@ -0,0 +1,19 @@
+package com.payment.Payment.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentItemResult {
+
+    private int index;
+    private Long orderId;
+    private boolean success;
+    private PaymentResponse payment;
+    private String error;
+}
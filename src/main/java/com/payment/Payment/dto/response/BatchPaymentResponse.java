@@ -0,0 +1,20 @@
+package com.payment.Payment.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPaymentResponse {
+
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BatchPaymentItemResult> results;
+}
@@ -0,0 +1,18 @@
+package com.payment.Payment.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentPageResponse {
+
+    private List<PaymentResponse> items;
+    private String nextCursor;
+}
@@ -20,6 +20,7 @@ public class PaymentResponse {
     private BigDecimal amount;
     private String currency;
     private PaymentStatus status;
+    private BigDecimal refundedAmount;
     private String cardLastFour;
     private String cardType;
     private String transactionId;
@@ -0,0 +1,75 @@
+package com.payment.Payment.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An order status change waiting to be delivered to the Order service. Rows are
+ * written in the same transaction as the payment change that caused them and
+ * deleted once the Order service has accepted the update. They are delivered
+ * with the service's own credentials, so no user token is stored.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "order_status_outbox", indexes = {
+        @Index(name = "idx_order_outbox_order", columnList = "order_id, id"),
+        @Index(name = "idx_order_outbox_next_attempt", columnList = "next_attempt_at")
+})
+public class OrderStatusEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_status_event_id")
+    @SequenceGenerator(name = "order_status_event_id", sequenceName = "order_status_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "order_status", nullable = false)
+    private String orderStatus;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // Null once the event has exhausted its attempts and is parked. While a relay
+    // has the event claimed, the end of its lease
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // The relay batch currently delivering the event
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
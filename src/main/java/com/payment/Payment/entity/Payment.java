@@ -7,9 +7,12 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,15 +22,23 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+        @Index(name = "idx_payments_user_created", columnList = "user_id, created_at"),
+        @Index(name = "idx_payments_order", columnList = "order_id"),
+        @Index(name = "idx_payments_status_updated", columnList = "status, updated_at")
+})
 public class Payment {
 
+    public static final String ID_SEQUENCE = "payments_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_id")
+    @SequenceGenerator(name = "payment_id", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(name = "user_id", nullable = false)
@@ -58,20 +69,48 @@ public class Payment {
     @Column(name = "failure_reason")
     private String failureReason;
 
+    // Sum of completed and in-flight refunds, kept up to date by each refund
+    // rather than summed from the refunds table
+    @Builder.Default
+    @Column(name = "refunded_amount", nullable = false, precision = 10, scale = 2,
+            columnDefinition = "numeric(10,2) default 0")
+    private BigDecimal refundedAmount = BigDecimal.ZERO;
+
+    // Concurrent refunds of the same payment are detected on this version
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Equals orderId while the payment is active and null otherwise, so the unique
+    // constraint allows at most one active payment per order
+    @Column(name = "active_order_id", unique = true)
+    private Long activeOrderId;
+
+    // Instance that accepted the payment, so after a restart it can tell its own
+    // abandoned payments from those another instance is still working on
+    @Column(name = "node_id")
+    private Integer nodeId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    public BigDecimal getRefundableAmount() {
+        return amount.subtract(refundedAmount);
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        activeOrderId = status.isActive() ? orderId : null;
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        activeOrderId = status.isActive() ? orderId : null;
     }
 }
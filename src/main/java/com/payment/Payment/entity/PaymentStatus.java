@@ -5,5 +5,41 @@ public enum PaymentStatus {
     PROCESSING,
     COMPLETED,
     FAILED,
-    REFUNDED
+    PARTIALLY_REFUNDED,
+    REFUNDED;
+
+    // TRANSITIONS[from.ordinal()][to.ordinal()] is true when a payment may move from one to the other
+    private static final boolean[][] TRANSITIONS = new boolean[values().length][values().length];
+
+    static {
+        allow(PENDING, PROCESSING, FAILED);
+        allow(PROCESSING, COMPLETED, FAILED);
+        allow(COMPLETED, PARTIALLY_REFUNDED, REFUNDED);
+        allow(PARTIALLY_REFUNDED, REFUNDED);
+    }
+
+    private static void allow(PaymentStatus from, PaymentStatus... to) {
+        for (PaymentStatus status : to) {
+            TRANSITIONS[from.ordinal()][status.ordinal()] = true;
+        }
+    }
+
+    public boolean canTransitionTo(PaymentStatus next) {
+        return TRANSITIONS[ordinal()][next.ordinal()];
+    }
+
+    /**
+     * Whether a payment in this status holds its order, i.e. no other payment for
+     * the same order may be started while it exists.
+     */
+    public boolean isActive() {
+        return this == PENDING || this == PROCESSING || this == COMPLETED || this == PARTIALLY_REFUNDED;
+    }
+
+    /**
+     * Whether the order has been paid for, i.e. refunds may be taken from it.
+     */
+    public boolean isPaid() {
+        return this == COMPLETED || this == PARTIALLY_REFUNDED;
+    }
 }
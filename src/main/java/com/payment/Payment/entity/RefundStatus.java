@@ -0,0 +1,7 @@
+package com.payment.Payment.entity;
+
+public enum RefundStatus {
+    PENDING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,8 @@
+package com.payment.Payment.exception;
+
+public class IdempotencyKeyException extends RuntimeException {
+
+    public IdempotencyKeyException(String message) {
+        super(message);
+    }
+}
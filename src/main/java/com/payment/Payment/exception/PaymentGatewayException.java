@@ -0,0 +1,8 @@
+package com.payment.Payment.exception;
+
+public class PaymentGatewayException extends RuntimeException {
+
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+}
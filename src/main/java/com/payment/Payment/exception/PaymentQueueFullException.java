@@ -0,0 +1,8 @@
+package com.payment.Payment.exception;
+
+public class PaymentQueueFullException extends RuntimeException {
+
+    public PaymentQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -9,4 +9,8 @@ public class ServiceCommunicationException extends RuntimeException {
     public ServiceCommunicationException(String service, String message) {
         super(String.format("Error communicating with %s service: %s", service, message));
     }
+
+    public ServiceCommunicationException(String service, String message, Throwable cause) {
+        super(String.format("Error communicating with %s service: %s", service, message), cause);
+    }
 }
@@ -0,0 +1,21 @@
+package com.payment.Payment.gateway;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorizationRequest {
+
+    private String transactionId;
+    private Long orderId;
+    private BigDecimal amount;
+    private String currency;
+    private String cardToken;
+}
@@ -0,0 +1,23 @@
+package com.payment.Payment.gateway;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GatewayResult {
+
+    private boolean approved;
+    private String reference;
+    private String declineReason;
+
+    public static GatewayResult approved(String reference) {
+        return new GatewayResult(true, reference, null);
+    }
+
+    public static GatewayResult declined(String declineReason) {
+        return new GatewayResult(false, null, declineReason);
+    }
+}
@@ -0,0 +1,40 @@
+package com.payment.Payment.gateway;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal latency given by its median and 99th percentile, the shape real
+ * gateway response times usually have. A p99 at or below the median gives a
+ * fixed latency.
+ */
+public class LatencyDistribution {
+
+    // 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263478740408408;
+
+    private final double mu;
+    private final double sigma;
+    private final long fixedNanos;
+
+    public LatencyDistribution(Duration median, Duration p99) {
+        long medianNanos = median.toNanos();
+        long p99Nanos = p99.toNanos();
+        if (medianNanos <= 0 || p99Nanos <= medianNanos) {
+            this.fixedNanos = Math.max(0, medianNanos);
+            this.mu = 0;
+            this.sigma = 0;
+        } else {
+            this.fixedNanos = -1;
+            this.mu = Math.log(medianNanos);
+            this.sigma = (Math.log(p99Nanos) - mu) / Z_99;
+        }
+    }
+
+    public long sampleNanos() {
+        if (fixedNanos >= 0) {
+            return fixedNanos;
+        }
+        return (long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+    }
+}
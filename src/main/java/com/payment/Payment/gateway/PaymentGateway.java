@@ -0,0 +1,48 @@
+package com.payment.Payment.gateway;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Payment gateway SPI. Operations return immediately and complete their future
+ * when the gateway answers, so callers do not hold a thread per call in flight.
+ * A decline completes normally with an unapproved {@link GatewayResult}; the
+ * future only completes exceptionally when the gateway could not be reached or
+ * failed to answer.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<GatewayResult> authorize(AuthorizationRequest request);
+
+    CompletableFuture<GatewayResult> capture(String authorizationReference, BigDecimal amount, String currency);
+
+    /**
+     * Refunds part of the charge for {@code transactionId}. {@code refundId} names
+     * this refund at the gateway, so a retried request is not carried out twice and
+     * the refund can be looked up with {@link #findRefund}.
+     */
+    CompletableFuture<GatewayResult> refund(String transactionId, String refundId, BigDecimal amount,
+                                            String currency);
+
+    /**
+     * Looks up what became of the charge for {@code transactionId}: approved with its
+     * capture reference when the money was taken, declined when it was not. Used to
+     * settle payments whose charge outcome was lost, e.g. to a restart.
+     */
+    CompletableFuture<GatewayResult> findCharge(String transactionId);
+
+    /**
+     * Looks up what became of the refund named {@code refundId}: approved with its
+     * reference when the money was returned, declined when it was not.
+     */
+    CompletableFuture<GatewayResult> findRefund(String refundId);
+
+    /**
+     * Authorizes and, if approved, captures the full amount.
+     */
+    default CompletableFuture<GatewayResult> charge(AuthorizationRequest request) {
+        return authorize(request).thenCompose(authorization -> authorization.isApproved()
+                ? capture(authorization.getReference(), request.getAmount(), request.getCurrency())
+                : CompletableFuture.completedFuture(authorization));
+    }
+}
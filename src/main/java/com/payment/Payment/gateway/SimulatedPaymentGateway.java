@@ -0,0 +1,107 @@
+package com.payment.Payment.gateway;
+
+import com.payment.Payment.exception.PaymentGatewayException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Local gateway that answers after a sampled latency. Responses are scheduled on
+ * a small timer pool rather than slept on, so thousands of calls can be in
+ * flight on a couple of threads. Authorizations are declined at
+ * {@code declineRate}; any operation fails at {@code errorRate}. Captures and
+ * refunds are remembered for {@link #findCharge} and {@link #findRefund} until
+ * the simulator is closed.
+ */
+@Slf4j
+public class SimulatedPaymentGateway implements PaymentGateway, AutoCloseable {
+
+    private final LatencyDistribution latency;
+    private final double declineRate;
+    private final double errorRate;
+    private final ScheduledThreadPoolExecutor timer;
+    private final ConcurrentMap<String, String> captures = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> refunds = new ConcurrentHashMap<>();
+
+    public SimulatedPaymentGateway(LatencyDistribution latency, double declineRate, double errorRate, int threads) {
+        this.latency = latency;
+        this.declineRate = declineRate;
+        this.errorRate = errorRate;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.timer = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gateway-simulator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> authorize(AuthorizationRequest request) {
+        return respond(() -> ThreadLocalRandom.current().nextDouble() < declineRate
+                ? GatewayResult.declined("Declined by issuer")
+                : GatewayResult.approved("AUTH-" + request.getTransactionId()));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> capture(String authorizationReference, BigDecimal amount, String currency) {
+        return respond(() -> {
+            String transactionId = authorizationReference.replaceFirst("^AUTH-", "");
+            String reference = "CAP-" + transactionId;
+            captures.put(transactionId, reference);
+            return GatewayResult.approved(reference);
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> refund(String transactionId, String refundId, BigDecimal amount,
+                                                   String currency) {
+        return respond(() -> GatewayResult.approved(
+                refunds.computeIfAbsent(refundId, id -> "REF-" + transactionId + "-" + id)));
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> findCharge(String transactionId) {
+        return respond(() -> {
+            String reference = captures.get(transactionId);
+            return reference != null
+                    ? GatewayResult.approved(reference)
+                    : GatewayResult.declined("No charge for " + transactionId);
+        });
+    }
+
+    @Override
+    public CompletableFuture<GatewayResult> findRefund(String refundId) {
+        return respond(() -> {
+            String reference = refunds.get(refundId);
+            return reference != null
+                    ? GatewayResult.approved(reference)
+                    : GatewayResult.declined("No refund " + refundId);
+        });
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private CompletableFuture<GatewayResult> respond(Supplier<GatewayResult> outcome) {
+        CompletableFuture<GatewayResult> response = new CompletableFuture<>();
+        timer.schedule(() -> {
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                response.completeExceptionally(new PaymentGatewayException("Simulated gateway error"));
+            } else {
+                response.complete(outcome.get());
+            }
+        }, latency.sampleNanos(), TimeUnit.NANOSECONDS);
+        return response;
+    }
+}
@@ -0,0 +1,26 @@
+package com.payment.Payment.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which successful payments and refunds are logged. Failures are always
+ * logged by their callers; successes only at {@code payment.logging.success-sample-rate},
+ * so under load the log volume follows the error rate rather than the request rate.
+ */
+@Component
+public class PaymentLogSampler {
+
+    private final double successSampleRate;
+
+    public PaymentLogSampler(@Value("${payment.logging.success-sample-rate:1.0}") double successSampleRate) {
+        this.successSampleRate = successSampleRate;
+    }
+
+    public boolean sampleSuccess() {
+        return successSampleRate >= 1.0
+                || successSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < successSampleRate;
+    }
+}
@@ -0,0 +1,48 @@
+package com.payment.Payment.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A count that is expensive to take, such as a {@code COUNT(*)} query behind a
+ * gauge, taken at most once per {@code maxAge} however often it is read. Reads in
+ * between return the last count. The count runs under a {@link ReentrantLock}, so
+ * a reader on a virtual thread waiting for the query does not pin its carrier.
+ */
+public class CachedCount {
+
+    private final LongSupplier count;
+    private final long maxAgeNanos;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long value;
+    private long takenAt;
+    private boolean taken;
+
+    public CachedCount(LongSupplier count, Duration maxAge) {
+        this(count, maxAge, System::nanoTime);
+    }
+
+    public CachedCount(LongSupplier count, Duration maxAge, LongSupplier nanoClock) {
+        this.count = count;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public long get() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            if (!taken || now - takenAt >= maxAgeNanos) {
+                value = count.getAsLong();
+                takenAt = now;
+                taken = true;
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
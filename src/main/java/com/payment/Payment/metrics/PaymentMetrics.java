@@ -0,0 +1,110 @@
+package com.payment.Payment.metrics;
+
+import com.payment.Payment.entity.PaymentStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Payment-specific meters: a latency histogram per processing stage, a counter
+ * per status transition and a counter per exception handled by the API.
+ */
+@Component
+public class PaymentMetrics {
+
+    public enum Stage {
+        ORDER_LOOKUP("order_lookup"),
+        CARD_VALIDATION("card_validation"),
+        DB_INSERT("db_insert"),
+        GATEWAY("gateway"),
+        DB_UPDATE("db_update"),
+        ORDER_STATUS_UPDATE("order_status_update"),
+        REFUND_RESERVE("refund_reserve"),
+        REFUND_GATEWAY("refund_gateway"),
+        REFUND_UPDATE("refund_update");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final String NO_STATUS = "NONE";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+    public PaymentMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("payment.stage")
+                    .description("Time spent in one stage of payment or refund processing")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Times {@code call} under {@code stage}, whether it returns or throws.
+     */
+    public <T> T time(Stage stage, Supplier<T> call) {
+        return stageTimers.get(stage).record(call);
+    }
+
+    public void time(Stage stage, Runnable call) {
+        stageTimers.get(stage).record(call);
+    }
+
+    /**
+     * Times an asynchronous {@code call} from its start until its future completes,
+     * or until it throws when it fails before returning a future.
+     */
+    public <T> CompletableFuture<T> timeAsync(Stage stage, Supplier<CompletableFuture<T>> call) {
+        Timer timer = stageTimers.get(stage);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException | Error e) {
+            sample.stop(timer);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> sample.stop(timer));
+    }
+
+    /**
+     * Counts a status change once the surrounding transaction commits, or
+     * immediately when there is no transaction. {@code from} is null for new payments.
+     */
+    public void recordTransition(PaymentStatus from, PaymentStatus to) {
+        String fromTag = from == null ? NO_STATUS : from.name();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            incrementTransition(fromTag, to.name());
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                incrementTransition(fromTag, to.name());
+            }
+        });
+    }
+
+    public void recordException(Exception exception) {
+        meterRegistry.counter("payment.api.exceptions", "exception", exception.getClass().getSimpleName())
+                .increment();
+    }
+
+    private void incrementTransition(String from, String to) {
+        meterRegistry.counter("payment.status.transitions", "from", from, "to", to).increment();
+    }
+}
@@ -0,0 +1,45 @@
+package com.payment.Payment.repository;
+
+import com.payment.Payment.entity.OrderStatusEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OrderStatusEventRepository extends JpaRepository<OrderStatusEvent, Long> {
+
+    /**
+     * Due events that are the oldest pending event of their order, so updates for
+     * one order are always delivered in the order they were written. Parked events
+     * no longer hold back later ones; a newer status supersedes them, and otherwise
+     * one undeliverable update would block its order for good.
+     */
+    @Query("SELECT e.id FROM OrderStatusEvent e WHERE e.nextAttemptAt <= :now"
+            + " AND NOT EXISTS (SELECT earlier.id FROM OrderStatusEvent earlier"
+            + " WHERE earlier.orderId = e.orderId AND earlier.id < e.id AND earlier.nextAttemptAt IS NOT NULL)"
+            + " ORDER BY e.id")
+    List<Long> findDeliverableIds(@Param("now") LocalDateTime now, Limit limit);
+
+    /**
+     * Leases the given events to {@code claimedBy} until {@code leaseUntil}, skipping
+     * any that another relay claimed since they were read. Returns the number claimed.
+     */
+    @Modifying
+    @Query("UPDATE OrderStatusEvent e SET e.claimedBy = :claimedBy, e.nextAttemptAt = :leaseUntil"
+            + " WHERE e.id IN :ids AND e.nextAttemptAt <= :now")
+    int claim(@Param("ids") Collection<Long> ids,
+              @Param("claimedBy") String claimedBy,
+              @Param("now") LocalDateTime now,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    List<OrderStatusEvent> findByClaimedByOrderById(String claimedBy);
+
+    long countByNextAttemptAtIsNull();
+}
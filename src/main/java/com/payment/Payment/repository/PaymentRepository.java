@@ -2,22 +2,106 @@ package com.payment.Payment.repository;
 
 import com.payment.Payment.entity.Payment;
 import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.repository.projection.PaymentSummary;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
-    List<Payment> findByUserIdOrderByCreatedAtDesc(String userId);
+    String SUMMARY_SELECT = "SELECT p.id AS id, p.orderId AS orderId, p.amount AS amount,"
+            + " p.currency AS currency, p.status AS status, p.refundedAmount AS refundedAmount,"
+            + " p.cardLastFour AS cardLastFour,"
+            + " p.cardType AS cardType, p.transactionId AS transactionId, p.failureReason AS failureReason,"
+            + " p.createdAt AS createdAt, p.updatedAt AS updatedAt FROM Payment p";
+
+    List<PaymentSummary> findByUserIdOrderByCreatedAtDesc(String userId);
+
+    @Query(SUMMARY_SELECT + " WHERE p.userId = :userId ORDER BY p.createdAt DESC, p.id DESC")
+    List<PaymentSummary> findFirstPageByUserId(@Param("userId") String userId, Limit limit);
+
+    @Query(SUMMARY_SELECT + " WHERE p.userId = :userId"
+            + " AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id))"
+            + " ORDER BY p.createdAt DESC, p.id DESC")
+    List<PaymentSummary> findPageByUserIdAfter(@Param("userId") String userId,
+                                               @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id,
+                                               Limit limit);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(SUMMARY_SELECT + " WHERE p.userId = :userId ORDER BY p.createdAt DESC, p.id DESC")
+    Stream<PaymentSummary> streamByUserId(@Param("userId") String userId);
 
     Optional<Payment> findByIdAndUserId(Long id, String userId);
 
-    Optional<Payment> findByOrderId(Long orderId);
+    Optional<Payment> findFirstByOrderIdOrderByCreatedAtDesc(Long orderId);
 
     Optional<Payment> findByTransactionId(String transactionId);
 
     List<Payment> findByStatus(PaymentStatus status);
+
+    List<Payment> findByStatusAndNodeId(PaymentStatus status, Integer nodeId);
+
+    List<Payment> findByStatusAndUpdatedAtBefore(PaymentStatus status, LocalDateTime updatedBefore);
+
+    @Query("SELECT p.orderId FROM Payment p WHERE p.orderId IN :orderIds AND p.status IN :statuses")
+    List<Long> findOrderIdsByStatusIn(@Param("orderIds") Collection<Long> orderIds,
+                                      @Param("statuses") Collection<PaymentStatus> statuses);
+
+    /**
+     * Moves a payment from {@code from} to {@code to} in one statement, provided it
+     * is still at {@code version}. Returns 0 when another writer got there first.
+     * {@code activeOrderId} must be set the way {@link Payment}'s update callback
+     * would set it, since the callback does not run for bulk updates.
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to, p.failureReason = :failureReason,"
+            + " p.activeOrderId = :activeOrderId, p.updatedAt = :updatedAt, p.version = p.version + 1"
+            + " WHERE p.id = :id AND p.status = :from AND p.version = :version")
+    int updateStatus(@Param("id") Long id,
+                     @Param("from") PaymentStatus from,
+                     @Param("version") Long version,
+                     @Param("to") PaymentStatus to,
+                     @Param("failureReason") String failureReason,
+                     @Param("activeOrderId") Long activeOrderId,
+                     @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Moves a payment from {@code from} to {@code to} and records its card in one
+     * statement, provided it is still at {@code version}. Returns 0 when another
+     * writer got there first.
+     */
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to, p.cardLastFour = :cardLastFour, p.cardType = :cardType,"
+            + " p.updatedAt = :updatedAt, p.version = p.version + 1"
+            + " WHERE p.id = :id AND p.status = :from AND p.version = :version")
+    int updateStatusAndCard(@Param("id") Long id,
+                            @Param("from") PaymentStatus from,
+                            @Param("version") Long version,
+                            @Param("to") PaymentStatus to,
+                            @Param("cardLastFour") String cardLastFour,
+                            @Param("cardType") String cardType,
+                            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Loads the payment and bumps its version on flush even if nothing else
+     * changes, so two transactions that both read it cannot both commit.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("SELECT p FROM Payment p WHERE p.id = :id")
+    Optional<Payment> findByIdIncrementingVersion(@Param("id") Long id);
 }
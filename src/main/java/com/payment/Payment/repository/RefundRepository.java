@@ -0,0 +1,21 @@
+package com.payment.Payment.repository;
+
+import com.payment.Payment.entity.Refund;
+import com.payment.Payment.entity.RefundStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RefundRepository extends JpaRepository<Refund, Long> {
+
+    long countByPaymentIdAndStatus(Long paymentId, RefundStatus status);
+
+    @Query("SELECT r.id FROM Refund r WHERE r.status = :status AND r.updatedAt < :updatedBefore ORDER BY r.id")
+    List<Long> findIdsByStatusAndUpdatedAtBefore(@Param("status") RefundStatus status,
+                                                 @Param("updatedBefore") LocalDateTime updatedBefore);
+}
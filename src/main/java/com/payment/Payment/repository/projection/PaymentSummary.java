@@ -0,0 +1,38 @@
+package com.payment.Payment.repository.projection;
+
+import com.payment.Payment.entity.PaymentStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection of the columns the list endpoints return. Selecting it
+ * instead of {@link com.payment.Payment.entity.Payment} skips entity
+ * instantiation and dirty-checking snapshots.
+ */
+public interface PaymentSummary {
+
+    Long getId();
+
+    Long getOrderId();
+
+    BigDecimal getAmount();
+
+    String getCurrency();
+
+    PaymentStatus getStatus();
+
+    BigDecimal getRefundedAmount();
+
+    String getCardLastFour();
+
+    String getCardType();
+
+    String getTransactionId();
+
+    String getFailureReason();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
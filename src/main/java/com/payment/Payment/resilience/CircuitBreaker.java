@@ -0,0 +1,197 @@
+package com.payment.Payment.resilience;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker. The last {@code slidingWindowSize} outcomes are kept
+ * in a ring buffer; once at least {@code minimumCalls} have been recorded and the
+ * failure rate reaches the threshold the breaker opens. After {@code openDurationNanos}
+ * a limited number of probe calls are let through (half-open) and the breaker closes
+ * again only if all of them succeed.
+ * <p>
+ * Every state change starts a new generation. A permission carries the generation
+ * it was granted in, and outcomes reported for an older generation are ignored, so
+ * a slow call admitted before the breaker opened cannot close it again later.
+ * <p>
+ * State is guarded by a {@link ReentrantLock} rather than {@code synchronized} so
+ * that callers running on virtual threads never pin their carrier thread.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Returned by {@link #tryAcquirePermission()} when the call must not be made.
+     */
+    public static final long NOT_PERMITTED = -1;
+
+    private final String name;
+    private final float failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenPermittedCalls;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes;
+    private int nextSlot;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    public CircuitBreaker(String name, float failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                          long openDurationNanos, int halfOpenPermittedCalls) {
+        this(name, failureRateThreshold, slidingWindowSize, minimumCalls, openDurationNanos,
+                halfOpenPermittedCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, float failureRateThreshold, int slidingWindowSize, int minimumCalls,
+                   long openDurationNanos, int halfOpenPermittedCalls, LongSupplier nanoClock) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+        this.openDurationNanos = openDurationNanos;
+        this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[slidingWindowSize];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the permission for one call, to be passed back with its outcome, or
+     * {@link #NOT_PERMITTED} when the breaker rejects the call.
+     */
+    public long tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                    return NOT_PERMITTED;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenInFlight >= halfOpenPermittedCalls) {
+                    return NOT_PERMITTED;
+                }
+                halfOpenInFlight++;
+            }
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a permission that was acquired but never used for a call.
+     */
+    public void releasePermission(long permission) {
+        lock.lock();
+        try {
+            if (permission == generation && state == State.HALF_OPEN) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long permission) {
+        lock.lock();
+        try {
+            if (permission != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                halfOpenInFlight = Math.max(0, halfOpenInFlight - 1);
+                if (++halfOpenSucceeded >= halfOpenPermittedCalls) {
+                    transitionTo(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure(long permission) {
+        lock.lock();
+        try {
+            if (permission != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                transitionTo(State.OPEN);
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (recordedCalls >= minimumCalls && failureRate() >= failureRateThreshold) {
+                    transitionTo(State.OPEN);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public float failureRate() {
+        lock.lock();
+        try {
+            return recordedCalls == 0 ? 0f : failedCalls * 100f / recordedCalls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failed) {
+        if (recordedCalls == outcomes.length) {
+            if (outcomes[nextSlot]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[nextSlot] = failed;
+        if (failed) {
+            failedCalls++;
+        }
+        nextSlot = (nextSlot + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        generation++;
+        halfOpenInFlight = 0;
+        halfOpenSucceeded = 0;
+        if (newState == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        }
+        if (newState != State.HALF_OPEN) {
+            nextSlot = 0;
+            recordedCalls = 0;
+            failedCalls = 0;
+        }
+    }
+}
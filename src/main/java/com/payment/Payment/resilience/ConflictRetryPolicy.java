@@ -0,0 +1,68 @@
+package com.payment.Payment.resilience;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a write that lost an optimistic locking race. The write must be a
+ * transaction of its own that re-reads what it checks, otherwise it fails the
+ * same way again. Retries are spaced by a random pause of up to
+ * {@code initialBackoff * 2^(attempt-1)}, capped at {@code maxBackoff}, so
+ * writers that collided once do not collide again in lockstep.
+ */
+public class ConflictRetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final LongAdder retries = new LongAdder();
+
+    public ConflictRetryPolicy(int maxAttempts, long initialBackoffNanos, long maxBackoffNanos) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+    }
+
+    /**
+     * Returns the result of the first attempt that does not conflict. The conflict
+     * of the last attempt is rethrown once {@code maxAttempts} are used up.
+     */
+    public <T> T execute(Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retries.increment();
+                pause(attempt, e);
+            }
+        }
+    }
+
+    public void execute(Runnable write) {
+        execute(() -> {
+            write.run();
+            return null;
+        });
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    private void pause(int attempt, OptimisticLockingFailureException conflict) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 30));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.payment.Payment.resilience;
+
+import com.payment.Payment.exception.ServiceCommunicationException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.function.Supplier;
+
+/**
+ * Runs calls to one downstream service through its bulkhead and circuit breaker.
+ * Rejected calls fail immediately with {@link ServiceCommunicationException}, the
+ * same exception the clients already raise for transport errors. Client errors
+ * (4xx) mean the service is healthy and are not counted as failures, and neither
+ * are calls aborted by interrupting the caller, e.g. when a parallel lookup fails
+ * first and its sibling is cancelled.
+ */
+@Slf4j
+@Getter
+@RequiredArgsConstructor
+public class DownstreamGuard {
+
+    private final String service;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public <T> T execute(Supplier<T> call) {
+        long permission = circuitBreaker.tryAcquirePermission();
+        if (permission == CircuitBreaker.NOT_PERMITTED) {
+            log.warn("{} service circuit breaker is open, rejecting call", service);
+            throw new ServiceCommunicationException(service, "circuit breaker is open");
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.releasePermission(permission);
+            log.warn("{} service bulkhead is full, rejecting call", service);
+            throw new ServiceCommunicationException(service, "too many concurrent calls");
+        }
+
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess(permission);
+            return result;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess(permission);
+            throw e;
+        } catch (RuntimeException e) {
+            if (wasInterrupted(e)) {
+                circuitBreaker.releasePermission(permission);
+            } else {
+                circuitBreaker.onFailure(permission);
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private static boolean wasInterrupted(Throwable error) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            // A socket timeout is an InterruptedIOException too, but a genuine failure
+            if (cause instanceof InterruptedException || cause instanceof ClosedByInterruptException
+                    || (cause instanceof InterruptedIOException && !(cause instanceof SocketTimeoutException))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
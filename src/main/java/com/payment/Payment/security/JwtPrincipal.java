@@ -0,0 +1,22 @@
+package com.payment.Payment.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Result of a single verified parse of a JWT. Authorities are derived once so
+ * cached principals can be reused across requests without further work.
+ */
+@Getter
+@AllArgsConstructor
+public class JwtPrincipal {
+
+    private final String username;
+    private final List<String> roles;
+    private final List<SimpleGrantedAuthority> authorities;
+    private final Instant expiresAt;
+}
@@ -1,19 +1,34 @@
 package com.payment.Payment.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
@@ -22,13 +37,63 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.cache.max-ttl:5m}")
+    private Duration cacheMaxTtl;
+
+    private JwtParser jwtParser;
+
+    private Cache<String, JwtPrincipal> principalCache;
+
+    @PostConstruct
+    void init() {
+        jwtParser = Jwts.parser()
+                .verifyWith(getSigningKey())
+                .build();
+        principalCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new PrincipalExpiry(cacheMaxTtl))
+                .build();
+    }
+
+    /**
+     * Verifies the token once and returns its principal. Tokens that were already
+     * verified are served from a digest-keyed cache until their {@code exp}.
+     */
+    public Optional<JwtPrincipal> authenticate(String token) {
+        String cacheKey = digest(token);
+        JwtPrincipal cached = principalCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            if (cached.getExpiresAt() == null || cached.getExpiresAt().isAfter(Instant.now())) {
+                return Optional.of(cached);
+            }
+            principalCache.invalidate(cacheKey);
+        }
+
+        Optional<JwtPrincipal> principal = parse(token);
+        principal.ifPresent(p -> principalCache.put(cacheKey, p));
+        return principal;
+    }
+
     public boolean validateToken(String token) {
+        return parse(token).isPresent();
+    }
+
+    public String getUsernameFromToken(String token) {
+        Claims claims = getClaims(token);
+        return claims.getSubject();
+    }
+
+    public List<String> getRolesFromToken(String token) {
+        Claims claims = getClaims(token);
+        return claims.get("roles", List.class);
+    }
+
+    private Optional<JwtPrincipal> parse(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            return Optional.of(toPrincipal(getClaims(token)));
         } catch (SignatureException e) {
             log.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -42,29 +107,77 @@ public class JwtUtil {
         } catch (Exception e) {
             log.error("Unexpected error validating token: {}", e.getMessage());
         }
-        return false;
+        return Optional.empty();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = getClaims(token);
-        return claims.getSubject();
-    }
-
-    public List<String> getRolesFromToken(String token) {
-        Claims claims = getClaims(token);
-        return claims.get("roles", List.class);
+    private JwtPrincipal toPrincipal(Claims claims) {
+        List<String> roles = claims.get("roles", List.class);
+        List<SimpleGrantedAuthority> authorities = roles != null
+                ? roles.stream()
+                    .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                    .collect(Collectors.toList())
+                : List.of();
+        Date expiration = claims.getExpiration();
+        return new JwtPrincipal(
+                claims.getSubject(),
+                roles,
+                authorities,
+                expiration != null ? expiration.toInstant() : null);
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
 
-    private SecretKey getSigningKey() {
+    /**
+     * Key derived from {@code jwt.secret}; tokens the service issues itself are signed
+     * with it so that they verify like any other.
+     */
+    public SecretKey getSigningKey() {
         byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
         return Keys.hmacShaKeyFor(keyBytes);
     }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class PrincipalExpiry implements Expiry<String, JwtPrincipal> {
+
+        private final Duration maxTtl;
+
+        private PrincipalExpiry(Duration maxTtl) {
+            this.maxTtl = maxTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+            if (principal.getExpiresAt() == null) {
+                return maxTtl.toNanos();
+            }
+            Duration untilExpiry = Duration.between(Instant.now(), principal.getExpiresAt());
+            if (untilExpiry.compareTo(maxTtl) > 0) {
+                return maxTtl.toNanos();
+            }
+            return untilExpiry.isNegative() ? 0 : untilExpiry.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
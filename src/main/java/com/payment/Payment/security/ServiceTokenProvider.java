@@ -0,0 +1,61 @@
+package com.payment.Payment.security;
+
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Bearer token the service uses for its own calls, such as outbox deliveries that
+ * run long after the user's request and token are gone. Tokens are signed with
+ * the key {@link JwtUtil} verifies against, carry the SERVICE role and are
+ * reissued shortly before they expire.
+ */
+@Component
+public class ServiceTokenProvider {
+
+    private final SecretKey signingKey;
+    private final String subject;
+    private final Duration ttl;
+
+    private volatile IssuedToken current;
+
+    public ServiceTokenProvider(JwtUtil jwtUtil,
+                                @Value("${payment.service-token.subject:payment-service}") String subject,
+                                @Value("${payment.service-token.ttl:5m}") Duration ttl) {
+        this.signingKey = jwtUtil.getSigningKey();
+        this.subject = subject;
+        this.ttl = ttl;
+    }
+
+    public String token() {
+        IssuedToken token = current;
+        // Renew once a fifth of the lifetime is left, so a token never expires in flight
+        if (token == null || Instant.now().isAfter(token.expiresAt().minus(ttl.dividedBy(5)))) {
+            token = issue();
+            current = token;
+        }
+        return token.value();
+    }
+
+    private IssuedToken issue() {
+        Instant issuedAt = Instant.now();
+        Instant expiresAt = issuedAt.plus(ttl);
+        String value = Jwts.builder()
+                .subject(subject)
+                .claim("roles", List.of("SERVICE"))
+                .issuedAt(Date.from(issuedAt))
+                .expiration(Date.from(expiresAt))
+                .signWith(signingKey)
+                .compact();
+        return new IssuedToken(value, expiresAt);
+    }
+
+    private record IssuedToken(String value, Instant expiresAt) {
+    }
+}
@@ -3,6 +3,7 @@ package com.payment.Payment.service;
 import com.payment.Payment.dto.external.CardValidationResponse;
 import com.payment.Payment.dto.request.PaymentRequest;
 import com.payment.Payment.exception.ServiceCommunicationException;
+import com.payment.Payment.resilience.DownstreamGuard;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -17,6 +18,7 @@ import java.util.Map;
 public class CardServiceClient {
 
     private final RestClient cardServiceRestClient;
+    private final DownstreamGuard cardServiceGuard;
 
     public CardValidationResponse validateCard(PaymentRequest.CardDetails cardDetails, String jwtToken) {
         log.debug("Validating card with Card service");
@@ -30,13 +32,15 @@ public class CardServiceClient {
                     "cvv", cardDetails.getCvv()
             );
 
-            return cardServiceRestClient.post()
+            return cardServiceGuard.execute(() -> cardServiceRestClient.post()
                     .uri("/api/cards/validate")
                     .header("Authorization", "Bearer " + jwtToken)
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(request)
                     .retrieve()
-                    .body(CardValidationResponse.class);
+                    .body(CardValidationResponse.class));
+        } catch (ServiceCommunicationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error validating card: {}", e.getMessage());
             throw new ServiceCommunicationException("Card", e.getMessage());
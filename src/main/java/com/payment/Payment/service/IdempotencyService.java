@@ -0,0 +1,185 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.IdempotencyRecord;
+import com.payment.Payment.exception.IdempotencyKeyException;
+import com.payment.Payment.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executes a write at most once per {@code Idempotency-Key}. Requests that are in
+ * flight are tracked in memory so a concurrent duplicate waits for the first one and
+ * gets its result; completed responses are persisted so later retries, including
+ * ones after a restart, are replayed without doing any work. Stored responses are
+ * kept for {@code payment.idempotency.retention}.
+ * <p>
+ * Requests are compared by an HMAC of their JSON under a server secret, so the
+ * stored fingerprint of a payment cannot be matched against guessed card details.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String HASH_ALGORITHM = "HmacSHA256";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final SecretKeySpec requestHashKey;
+    private final Duration retention;
+    private final Duration waitTimeout;
+    // The application's mapper, so a replayed body is serialized like the original response
+    private final JsonMapper jsonMapper;
+
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, JsonMapper jsonMapper,
+                              @Value("${payment.idempotency.request-hash-secret}") String requestHashSecret,
+                              @Value("${payment.idempotency.retention:24h}") Duration retention,
+                              @Value("${payment.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.jsonMapper = jsonMapper;
+        this.requestHashKey = new SecretKeySpec(requestHashSecret.getBytes(StandardCharsets.UTF_8), HASH_ALGORITHM);
+        this.retention = retention;
+        this.waitTimeout = waitTimeout;
+    }
+
+    public PaymentResponse execute(String userId, String operation, String idempotencyKey,
+                                   Object request, Supplier<PaymentResponse> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = userId + ":" + operation + ":" + idempotencyKey;
+        String requestHash = hash(request);
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight existing = inFlight.putIfAbsent(id, mine);
+        if (existing != null) {
+            log.debug("Waiting for in-flight request with idempotency key {}", idempotencyKey);
+            assertSameRequest(existing.requestHash(), requestHash);
+            return await(existing.response());
+        }
+
+        try {
+            Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(id);
+            if (stored.isPresent() && !stored.get().getCreatedAt().isAfter(expiryCutoff())) {
+                // Expired but not purged yet; the key starts over
+                idempotencyRecordRepository.delete(stored.get());
+                stored = Optional.empty();
+            }
+            if (stored.isPresent()) {
+                assertSameRequest(stored.get().getRequestHash(), requestHash);
+                log.debug("Replaying stored response for idempotency key {}", idempotencyKey);
+                PaymentResponse replayed = deserialize(stored.get().getResponseBody());
+                mine.response().complete(replayed);
+                return replayed;
+            }
+
+            PaymentResponse response = action.get();
+            store(id, userId, operation, requestHash, response);
+            mine.response().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.response().completeExceptionally(e);
+            throw e;
+        } finally {
+            // Only removed after the record is stored, so later retries always find one of the two
+            inFlight.remove(id, mine);
+        }
+    }
+
+    /**
+     * Deletes stored responses older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = idempotencyRecordRepository.deleteCreatedBefore(expiryCutoff());
+        if (purged > 0) {
+            log.debug("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minus(retention);
+    }
+
+    private void store(String id, String userId, String operation, String requestHash, PaymentResponse response) {
+        try {
+            idempotencyRecordRepository.save(IdempotencyRecord.builder()
+                    .id(id)
+                    .userId(userId)
+                    .operation(operation)
+                    .requestHash(requestHash)
+                    .responseBody(jsonMapper.writeValueAsString(response))
+                    .build());
+        } catch (Exception e) {
+            // The payment itself succeeded; failing the request now would invite a duplicate retry
+            log.error("Could not store idempotent response for {}: {}", id, e.getMessage());
+        }
+    }
+
+    private PaymentResponse await(CompletableFuture<PaymentResponse> response) {
+        try {
+            return response.get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdempotencyKeyException("Interrupted while waiting for a request with this Idempotency-Key");
+        }
+    }
+
+    private void assertSameRequest(String expectedHash, String actualHash) {
+        if (!expectedHash.equals(actualHash)) {
+            throw new IdempotencyKeyException("Idempotency-Key was already used with a different request");
+        }
+    }
+
+    private PaymentResponse deserialize(String body) {
+        try {
+            return jsonMapper.readValue(body, PaymentResponse.class);
+        } catch (JacksonException e) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] json = jsonMapper.writeValueAsBytes(request);
+            Mac mac = Mac.getInstance(HASH_ALGORITHM);
+            mac.init(requestHashKey);
+            return HexFormat.of().formatHex(mac.doFinal(json));
+        } catch (JacksonException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<PaymentResponse> response) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.payment.Payment.service;
 
 import com.payment.Payment.exception.ServiceCommunicationException;
+import com.payment.Payment.resilience.DownstreamGuard;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -15,18 +16,28 @@ import java.util.Map;
 public class OrderServiceClient {
 
     private final RestClient orderServiceRestClient;
+    private final DownstreamGuard orderServiceGuard;
 
-    public boolean updateOrderStatus(Long orderId, String status, String jwtToken) {
+    /**
+     * Sets the order's status. Called by {@link OrderStatusRelay}, which retries on
+     * failure, rather than inline with the payment.
+     */
+    public void updateOrderStatus(Long orderId, String status, String jwtToken) {
         log.debug("Updating order {} status to {}", orderId, status);
 
         try {
-            // This would call an endpoint to update order status
-            // For now, we'll log it - in production, implement actual API call
-            log.info("Order {} status would be updated to {}", orderId, status);
-            return true;
+            orderServiceGuard.execute(() -> orderServiceRestClient.put()
+                    .uri("/api/orders/{id}/status", orderId)
+                    .header("Authorization", "Bearer " + jwtToken)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("status", status))
+                    .retrieve()
+                    .toBodilessEntity());
+        } catch (ServiceCommunicationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error updating order status: {}", e.getMessage());
-            return false;
+            throw new ServiceCommunicationException("Order", e.getMessage());
         }
     }
 
@@ -34,14 +45,16 @@ public class OrderServiceClient {
         log.debug("Fetching order {}", orderId);
 
         try {
-            return orderServiceRestClient.get()
+            return orderServiceGuard.execute(() -> orderServiceRestClient.get()
                     .uri("/api/orders/{id}", orderId)
                     .header("Authorization", "Bearer " + jwtToken)
                     .retrieve()
-                    .body(Map.class);
+                    .body(Map.class));
+        } catch (ServiceCommunicationException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error fetching order: {}", e.getMessage());
-            throw new ServiceCommunicationException("Order", e.getMessage());
+            throw new ServiceCommunicationException("Order", e.getMessage(), e);
         }
     }
 }
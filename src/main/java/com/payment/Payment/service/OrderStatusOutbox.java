@@ -0,0 +1,71 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.entity.OrderStatusEvent;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.repository.OrderStatusEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Storage side of the order status outbox. Events are enqueued inside the
+ * transaction that changes the payment, so either both are committed or neither
+ * is; {@link OrderStatusRelay} delivers them afterwards.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderStatusOutbox {
+
+    private final OrderStatusEventRepository orderStatusEventRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Payment payment, String orderStatus) {
+        orderStatusEventRepository.save(OrderStatusEvent.builder()
+                .paymentId(payment.getId())
+                .orderId(payment.getOrderId())
+                .orderStatus(orderStatus)
+                .build());
+    }
+
+    /**
+     * Claims up to {@code limit} due events for {@code lease} and returns them. An
+     * event claimed by another instance is skipped, and while it is claimed later
+     * events of its order stay undeliverable, so each event goes out from one
+     * instance at a time and in order. Events of a relay that died become due again
+     * when its lease runs out.
+     */
+    @Transactional
+    public List<OrderStatusEvent> claimDeliverable(int limit, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = orderStatusEventRepository.findDeliverableIds(now, Limit.of(limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String claimedBy = UUID.randomUUID().toString();
+        if (orderStatusEventRepository.claim(ids, claimedBy, now, now.plus(lease)) == 0) {
+            return List.of();
+        }
+        return orderStatusEventRepository.findByClaimedByOrderById(claimedBy);
+    }
+
+    /**
+     * Removes delivered events and stores the rescheduled state of failed ones.
+     */
+    @Transactional
+    public void recordDelivery(Collection<Long> deliveredIds, List<OrderStatusEvent> failed) {
+        if (!deliveredIds.isEmpty()) {
+            orderStatusEventRepository.deleteAllByIdInBatch(deliveredIds);
+        }
+        if (!failed.isEmpty()) {
+            orderStatusEventRepository.saveAll(failed);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.entity.OrderStatusEvent;
+import com.payment.Payment.metrics.PaymentMetrics;
+import com.payment.Payment.metrics.PaymentMetrics.Stage;
+import com.payment.Payment.security.ServiceTokenProvider;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delivers outbox events to the Order service. Delivery is at-least-once: an
+ * event is only deleted after the Order service accepted it, so a crash between
+ * the call and the delete sends it again on the next run. Failed events are
+ * retried with exponential backoff and parked after {@code order.outbox.max-attempts};
+ * a parked event stays in the outbox for inspection but no longer holds back its order.
+ * Events are claimed before delivery, so several instances can relay side by side.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusRelay {
+
+    private final OrderStatusOutbox orderStatusOutbox;
+    private final OrderServiceClient orderServiceClient;
+    private final ServiceTokenProvider serviceTokenProvider;
+    private final PaymentMetrics paymentMetrics;
+    private final AsyncTaskExecutor downstreamExecutor;
+
+    @Value("${order.outbox.batch-size:100}")
+    private int batchSize;
+
+    // Longer than any delivery can take, or a slow one is sent twice
+    @Value("${order.outbox.lease:1m}")
+    private Duration lease;
+
+    @Value("${order.outbox.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${order.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${order.outbox.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${order.outbox.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    int relayBatch() {
+        List<OrderStatusEvent> events = orderStatusOutbox.claimDeliverable(batchSize, lease);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        String token = serviceTokenProvider.token();
+
+        // Each order appears at most once per batch, so the calls can run concurrently
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        Map<OrderStatusEvent, CompletableFuture<Void>> calls = new LinkedHashMap<>();
+        try {
+            for (OrderStatusEvent event : events) {
+                inFlight.acquire();
+                CompletableFuture<Void> call = CompletableFuture.runAsync(() -> paymentMetrics.time(
+                        Stage.ORDER_STATUS_UPDATE, () -> orderServiceClient.updateOrderStatus(
+                                event.getOrderId(), event.getOrderStatus(), token)), downstreamExecutor);
+                call.whenComplete((ignored, e) -> inFlight.release());
+                calls.put(event, call);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Long> delivered = new ArrayList<>();
+        List<OrderStatusEvent> failed = new ArrayList<>();
+        calls.forEach((event, call) -> {
+            try {
+                call.join();
+                delivered.add(event.getId());
+            } catch (CompletionException e) {
+                reschedule(event, e.getCause().getMessage());
+                failed.add(event);
+            }
+        });
+
+        orderStatusOutbox.recordDelivery(delivered, failed);
+        if (!failed.isEmpty()) {
+            log.warn("Delivered {} order status updates, {} failed and will be retried", delivered.size(), failed.size());
+        } else {
+            log.debug("Delivered {} order status updates", delivered.size());
+        }
+        return calls.size();
+    }
+
+    private void reschedule(OrderStatusEvent event, String error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setClaimedBy(null);
+        event.setLastError(error == null || error.length() <= 1000 ? error : error.substring(0, 1000));
+
+        if (attempts >= maxAttempts) {
+            event.setNextAttemptAt(null);
+            log.error("Parking order {} status update to {} after {} attempts, later updates go ahead: {}",
+                    event.getOrderId(), event.getOrderStatus(), attempts, error);
+            return;
+        }
+
+        long backoffMillis = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        backoffMillis = Math.min(backoffMillis, maxBackoff.toMillis());
+        // Jitter spreads retries of events that failed together
+        long delay = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+        event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+    }
+}
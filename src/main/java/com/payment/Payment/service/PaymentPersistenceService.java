@@ -0,0 +1,329 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.cache.PaymentCache;
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.entity.Refund;
+import com.payment.Payment.entity.RefundStatus;
+import com.payment.Payment.exception.PaymentNotFoundException;
+import com.payment.Payment.exception.PaymentProcessingException;
+import com.payment.Payment.exception.RefundException;
+import com.payment.Payment.metrics.PaymentMetrics;
+import com.payment.Payment.repository.PaymentRepository;
+import com.payment.Payment.repository.RefundRepository;
+import com.payment.Payment.util.TransactionIdGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Short, self-contained transactions for each write stage of the payment flow.
+ * Remote calls and the gateway step run outside of these methods so that no
+ * pooled connection is held while waiting on the network.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaymentPersistenceService {
+
+    private static final Set<PaymentStatus> PAID_STATUSES =
+            EnumSet.of(PaymentStatus.COMPLETED, PaymentStatus.PARTIALLY_REFUNDED);
+
+    private final PaymentRepository paymentRepository;
+    private final RefundRepository refundRepository;
+    private final PaymentCache paymentCache;
+    private final OrderStatusOutbox orderStatusOutbox;
+    private final PaymentMetrics paymentMetrics;
+    private final TransactionIdGenerator transactionIdGenerator;
+
+    @Transactional
+    public Payment createProcessingPayment(String userId, PaymentRequest request,
+                                           CardValidationResponse cardValidation, String transactionId) {
+        assertNotCompleted(request.getOrderId());
+        Payment payment = newProcessingPayment(userId, request, cardValidation, transactionId);
+        // Flush so a concurrent active payment for the order fails here on the unique constraint
+        Payment saved = paymentRepository.saveAndFlush(payment);
+        paymentMetrics.recordTransition(null, saved.getStatus());
+        return evictAfterCommit(saved);
+    }
+
+    /**
+     * Inserts a batch of PROCESSING rows in one transaction so they can be written
+     * with JDBC batching.
+     */
+    @Transactional
+    public List<Payment> createProcessingPayments(List<Payment> payments) {
+        List<Payment> saved = paymentRepository.saveAllAndFlush(payments);
+        for (Payment payment : saved) {
+            paymentMetrics.recordTransition(null, payment.getStatus());
+            paymentCache.evictAfterCommit(payment);
+        }
+        return saved;
+    }
+
+    public Payment newProcessingPayment(String userId, PaymentRequest request,
+                                        CardValidationResponse cardValidation, String transactionId) {
+        return Payment.builder()
+                .userId(userId)
+                .orderId(request.getOrderId())
+                .amount(request.getAmount())
+                .currency(request.getCurrency())
+                .status(PaymentStatus.PROCESSING)
+                .cardLastFour(cardValidation.getCardLastFour())
+                .cardType(cardValidation.getCardType())
+                .transactionId(transactionId)
+                .nodeId(transactionIdGenerator.getNodeId())
+                .build();
+    }
+
+    /**
+     * Records an asynchronously submitted payment before its order and card have
+     * been checked. The card details are filled in by {@link #markProcessing}.
+     */
+    @Transactional
+    public Payment createPendingPayment(String userId, PaymentRequest request, String transactionId) {
+        assertNotCompleted(request.getOrderId());
+        Payment payment = Payment.builder()
+                .userId(userId)
+                .orderId(request.getOrderId())
+                .amount(request.getAmount())
+                .currency(request.getCurrency())
+                .status(PaymentStatus.PENDING)
+                .transactionId(transactionId)
+                .nodeId(transactionIdGenerator.getNodeId())
+                .build();
+        Payment saved = paymentRepository.saveAndFlush(payment);
+        paymentMetrics.recordTransition(null, saved.getStatus());
+        return evictAfterCommit(saved);
+    }
+
+    /**
+     * Moves {@code pending}, the payment as it was accepted, to PROCESSING with one
+     * conditional UPDATE instead of reading it again. Fails with an optimistic
+     * locking error if the payment changed in the meantime, for instance because a
+     * restart already failed it.
+     */
+    @Transactional
+    public Payment markProcessing(Payment pending, CardValidationResponse cardValidation) {
+        assertTransition(pending.getStatus(), PaymentStatus.PROCESSING);
+        LocalDateTime now = LocalDateTime.now();
+        int updated = paymentRepository.updateStatusAndCard(pending.getId(), pending.getStatus(),
+                pending.getVersion(), PaymentStatus.PROCESSING,
+                cardValidation.getCardLastFour(), cardValidation.getCardType(), now);
+        if (updated == 0) {
+            throw new ObjectOptimisticLockingFailureException(Payment.class, pending.getId());
+        }
+        paymentMetrics.recordTransition(pending.getStatus(), PaymentStatus.PROCESSING);
+        return evictAfterCommit(pending.toBuilder()
+                .status(PaymentStatus.PROCESSING)
+                .cardLastFour(cardValidation.getCardLastFour())
+                .cardType(cardValidation.getCardType())
+                .updatedAt(now)
+                .version(pending.getVersion() + 1)
+                .build());
+    }
+
+    /**
+     * Moves {@code expected} to {@code status} with one conditional UPDATE of the
+     * status columns, without reading the row first, and returns the payment as
+     * it now is. Fails with an optimistic locking error when the row is no longer
+     * at the status and version {@code expected} was read with.
+     */
+    @Transactional
+    public Payment compareAndSetStatus(Payment expected, PaymentStatus status, String failureReason) {
+        assertTransition(expected.getStatus(), status);
+        LocalDateTime now = LocalDateTime.now();
+        Long activeOrderId = status.isActive() ? expected.getOrderId() : null;
+        int updated = paymentRepository.updateStatus(expected.getId(), expected.getStatus(), expected.getVersion(),
+                status, failureReason, activeOrderId, now);
+        if (updated == 0) {
+            throw new ObjectOptimisticLockingFailureException(Payment.class, expected.getId());
+        }
+        paymentMetrics.recordTransition(expected.getStatus(), status);
+        return evictAfterCommit(expected.toBuilder()
+                .status(status)
+                .failureReason(failureReason)
+                .activeOrderId(activeOrderId)
+                .updatedAt(now)
+                .version(expected.getVersion() + 1)
+                .build());
+    }
+
+    /**
+     * Completes {@code processing} with a single conditional UPDATE and, in the
+     * same transaction, queues the order's move to PROCESSING.
+     */
+    @Transactional
+    public Payment markCompleted(Payment processing) {
+        Payment completed = compareAndSetStatus(processing, PaymentStatus.COMPLETED, null);
+        orderStatusOutbox.enqueue(completed, "PROCESSING");
+        return completed;
+    }
+
+    @Transactional
+    public Payment markFailed(Payment payment, String failureReason) {
+        return compareAndSetStatus(payment, PaymentStatus.FAILED, failureReason);
+    }
+
+    /**
+     * Takes {@code amount}, or the whole remaining balance when null, off the
+     * payment's refundable balance and records it as a PENDING refund. The balance
+     * is updated under the payment's version, so when two refunds race one of them
+     * fails with an optimistic locking error and has to be retried.
+     */
+    @Transactional
+    public Refund reserveRefund(Long paymentId, String userId, BigDecimal amount, String reason) {
+        Payment payment = paymentRepository.findByIdAndUserId(paymentId, userId)
+                .orElseThrow(() -> new PaymentNotFoundException(paymentId));
+        if (payment.getStatus() == PaymentStatus.REFUNDED) {
+            throw new RefundException("Payment has already been refunded");
+        }
+        if (!payment.getStatus().isPaid()) {
+            throw new RefundException("Can only refund completed payments. Current status: " + payment.getStatus());
+        }
+
+        BigDecimal refundable = payment.getRefundableAmount();
+        if (refundable.signum() <= 0) {
+            throw new RefundException("Payment has no refundable balance left");
+        }
+        BigDecimal refundAmount = amount == null ? refundable : amount;
+        if (refundAmount.compareTo(refundable) > 0) {
+            throw new RefundException("Refund amount " + refundAmount
+                    + " exceeds the refundable balance of " + refundable);
+        }
+
+        payment.setRefundedAmount(payment.getRefundedAmount().add(refundAmount));
+        Payment reserved = evictAfterCommit(paymentRepository.saveAndFlush(payment));
+        return refundRepository.save(Refund.builder()
+                .payment(reserved)
+                .amount(refundAmount)
+                .status(RefundStatus.PENDING)
+                .reason(reason)
+                .build());
+    }
+
+    /**
+     * Completes a refund the gateway accepted. The payment becomes REFUNDED, and
+     * its order is queued for cancellation, once the balance is used up by
+     * completed refunds only; until then it is PARTIALLY_REFUNDED. Completing a
+     * refund that is already COMPLETED just returns its payment.
+     */
+    @Transactional
+    public Payment completeRefund(Long refundId, String gatewayReference) {
+        Refund refund = loadRefund(refundId);
+        if (refund.getStatus() == RefundStatus.COMPLETED) {
+            return paymentRepository.findById(refund.getPayment().getId())
+                    .orElseThrow(() -> new PaymentNotFoundException(refund.getPayment().getId()));
+        }
+        if (refund.getStatus() != RefundStatus.PENDING) {
+            throw new RefundException("Refund " + refundId + " is already " + refund.getStatus());
+        }
+        // Bump the version even when the status stays put, so two refunds completing
+        // at once cannot both see the other one as still pending
+        Payment payment = paymentRepository.findByIdIncrementingVersion(refund.getPayment().getId())
+                .orElseThrow(() -> new PaymentNotFoundException(refund.getPayment().getId()));
+        refund.setStatus(RefundStatus.COMPLETED);
+        refund.setGatewayReference(gatewayReference);
+        refundRepository.save(refund);
+
+        boolean fullyRefunded = payment.getRefundableAmount().signum() == 0
+                && refundRepository.countByPaymentIdAndStatus(payment.getId(), RefundStatus.PENDING) == 0;
+        if (fullyRefunded) {
+            transition(payment, PaymentStatus.REFUNDED);
+            orderStatusOutbox.enqueue(payment, "CANCELLED");
+        } else if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            transition(payment, PaymentStatus.PARTIALLY_REFUNDED);
+        }
+        return evictAfterCommit(paymentRepository.saveAndFlush(payment));
+    }
+
+    /**
+     * Marks a refund the gateway did not carry out as FAILED and returns its
+     * amount to the payment's refundable balance. Does nothing once the refund
+     * is no longer PENDING.
+     */
+    @Transactional
+    public void releaseRefund(Long refundId, String failureReason) {
+        Refund refund = loadRefund(refundId);
+        if (refund.getStatus() != RefundStatus.PENDING) {
+            return;
+        }
+        Payment payment = refund.getPayment();
+        refund.setStatus(RefundStatus.FAILED);
+        refund.setFailureReason(failureReason);
+        refundRepository.save(refund);
+        payment.setRefundedAmount(payment.getRefundedAmount().subtract(refund.getAmount()));
+        evictAfterCommit(paymentRepository.saveAndFlush(payment));
+    }
+
+    /**
+     * Payments in {@code status} that this instance accepted.
+     */
+    @Transactional(readOnly = true)
+    public List<Payment> findOwnUnfinished(PaymentStatus status) {
+        return paymentRepository.findByStatusAndNodeId(status, transactionIdGenerator.getNodeId());
+    }
+
+    /**
+     * Payments of any instance that have been in {@code status} since before {@code cutoff}.
+     */
+    @Transactional(readOnly = true)
+    public List<Payment> findStale(PaymentStatus status, LocalDateTime cutoff) {
+        return paymentRepository.findByStatusAndUpdatedAtBefore(status, cutoff);
+    }
+
+    /**
+     * Ids of refunds that have been PENDING since before {@code cutoff}.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findStaleRefundIds(LocalDateTime cutoff) {
+        return refundRepository.findIdsByStatusAndUpdatedAtBefore(RefundStatus.PENDING, cutoff);
+    }
+
+    @Transactional(readOnly = true)
+    public void assertNotCompleted(Long orderId) {
+        paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(orderId)
+                .ifPresent(existing -> {
+                    if (existing.getStatus().isPaid()) {
+                        throw new PaymentProcessingException("Payment already completed for this order");
+                    }
+                });
+    }
+
+    @Transactional(readOnly = true)
+    public Set<Long> findCompletedOrderIds(Collection<Long> orderIds) {
+        return new HashSet<>(paymentRepository.findOrderIdsByStatusIn(orderIds, PAID_STATUSES));
+    }
+
+    private void transition(Payment payment, PaymentStatus status) {
+        assertTransition(payment.getStatus(), status);
+        paymentMetrics.recordTransition(payment.getStatus(), status);
+        payment.setStatus(status);
+    }
+
+    private static void assertTransition(PaymentStatus from, PaymentStatus to) {
+        if (!from.canTransitionTo(to)) {
+            throw new PaymentProcessingException("Payment cannot move from " + from + " to " + to);
+        }
+    }
+
+    private Payment evictAfterCommit(Payment payment) {
+        paymentCache.evictAfterCommit(payment);
+        return payment;
+    }
+
+    private Refund loadRefund(Long refundId) {
+        return refundRepository.findById(refundId)
+                .orElseThrow(() -> new RefundException("Refund not found: " + refundId));
+    }
+}
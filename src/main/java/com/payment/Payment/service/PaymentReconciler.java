@@ -0,0 +1,106 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.gateway.GatewayResult;
+import com.payment.Payment.gateway.PaymentGateway;
+import com.payment.Payment.resilience.ConflictRetryPolicy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Settles PROCESSING payments and PENDING refunds whose gateway outcome was lost
+ * by asking the gateway what became of them. Until the gateway gives an answer a
+ * payment stays PROCESSING and keeps holding its order, so it cannot be paid
+ * twice, and a refund keeps its amount reserved.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciler {
+
+    private final PaymentGateway paymentGateway;
+    private final PaymentPersistenceService paymentPersistenceService;
+    private final ConflictRetryPolicy conflictRetryPolicy;
+
+    @Value("${payment.reconciliation.gateway-timeout:10s}")
+    private Duration gatewayTimeout;
+
+    /**
+     * Completes {@code processing} if it was charged and fails it with
+     * {@code failureReason} if it was not. Returns the settled payment, or empty
+     * when the gateway could not say or another writer settled the payment first.
+     */
+    public Optional<Payment> reconcile(Payment processing, String failureReason) {
+        GatewayResult charge = lookUp(paymentGateway.findCharge(processing.getTransactionId()),
+                "charge of payment " + processing.getId());
+        if (charge == null) {
+            return Optional.empty();
+        }
+
+        try {
+            if (charge.isApproved()) {
+                log.warn("Payment {} was charged ({}), completing it", processing.getId(), charge.getReference());
+                return Optional.of(paymentPersistenceService.markCompleted(processing));
+            }
+            log.warn("Payment {} was not charged, failing it: {}", processing.getId(), failureReason);
+            return Optional.of(paymentPersistenceService.markFailed(processing, failureReason));
+        } catch (OptimisticLockingFailureException e) {
+            log.debug("Payment {} was settled concurrently", processing.getId());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Completes the PENDING refund {@code refundId} if the gateway carried it out and
+     * releases its amount if not. Returns whether the refund was settled.
+     */
+    public boolean reconcileRefund(Long refundId) {
+        GatewayResult refund = lookUp(paymentGateway.findRefund(String.valueOf(refundId)), "refund " + refundId);
+        if (refund == null) {
+            return false;
+        }
+
+        try {
+            if (refund.isApproved()) {
+                log.warn("Refund {} was carried out ({}), completing it", refundId, refund.getReference());
+                conflictRetryPolicy.execute(() -> paymentPersistenceService.completeRefund(
+                        refundId, refund.getReference()));
+            } else {
+                log.warn("Refund {} was not carried out, releasing its amount", refundId);
+                conflictRetryPolicy.execute(() -> paymentPersistenceService.releaseRefund(
+                        refundId, "Refund not carried out: " + refund.getDeclineReason()));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not settle refund {}: {}", refundId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Waits for a gateway lookup, or returns null when the gateway could not answer.
+     */
+    private GatewayResult lookUp(CompletableFuture<GatewayResult> call, String subject) {
+        try {
+            return call.get(gatewayTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            call.cancel(false);
+            log.warn("Could not look up the {}, leaving it for the next attempt: {}",
+                    subject, e.getCause() != null ? e.getCause().getMessage() : e.toString());
+            return null;
+        }
+    }
+}
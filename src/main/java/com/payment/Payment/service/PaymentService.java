@@ -2,19 +2,30 @@ package com.payment.Payment.service;
 
 import com.payment.Payment.dto.request.PaymentRequest;
 import com.payment.Payment.dto.request.RefundRequest;
+import com.payment.Payment.dto.response.BatchPaymentResponse;
+import com.payment.Payment.dto.response.PaymentPageResponse;
 import com.payment.Payment.dto.response.PaymentResponse;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PaymentService {
 
     PaymentResponse processPayment(String userId, String jwtToken, PaymentRequest request);
 
+    PaymentResponse submitPayment(String userId, String jwtToken, PaymentRequest request);
+
+    BatchPaymentResponse processPayments(String userId, String jwtToken, List<PaymentRequest> requests);
+
     PaymentResponse getPaymentById(Long paymentId, String userId);
 
     List<PaymentResponse> getUserPayments(String userId);
 
+    PaymentPageResponse getUserPaymentsPage(String userId, String cursor, int limit);
+
+    void streamUserPayments(String userId, Consumer<PaymentResponse> consumer);
+
     PaymentResponse getPaymentByOrderId(Long orderId, String userId);
 
-    PaymentResponse refundPayment(String userId, String jwtToken, RefundRequest request);
+    PaymentResponse refundPayment(String userId, RefundRequest request);
 }
@@ -1,27 +1,69 @@
 package com.payment.Payment.service;
 
+import com.payment.Payment.cache.OrderLookupCache;
+import com.payment.Payment.cache.PaymentCache;
 import com.payment.Payment.dto.external.CardValidationResponse;
 import com.payment.Payment.dto.request.PaymentRequest;
 import com.payment.Payment.dto.request.RefundRequest;
+import com.payment.Payment.dto.response.BatchPaymentItemResult;
+import com.payment.Payment.dto.response.BatchPaymentResponse;
+import com.payment.Payment.dto.response.PaymentPageResponse;
 import com.payment.Payment.dto.response.PaymentResponse;
 import com.payment.Payment.entity.Payment;
 import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.entity.Refund;
 import com.payment.Payment.exception.CardValidationException;
 import com.payment.Payment.exception.OrderNotFoundException;
 import com.payment.Payment.exception.PaymentNotFoundException;
 import com.payment.Payment.exception.PaymentProcessingException;
 import com.payment.Payment.exception.RefundException;
 import com.payment.Payment.exception.ServiceCommunicationException;
+import com.payment.Payment.gateway.AuthorizationRequest;
+import com.payment.Payment.gateway.GatewayResult;
+import com.payment.Payment.gateway.PaymentGateway;
+import com.payment.Payment.logging.PaymentLogSampler;
+import com.payment.Payment.metrics.PaymentMetrics;
+import com.payment.Payment.metrics.PaymentMetrics.Stage;
 import com.payment.Payment.repository.PaymentRepository;
+import com.payment.Payment.repository.projection.PaymentSummary;
+import com.payment.Payment.resilience.ConflictRetryPolicy;
+import com.payment.Payment.util.PaymentCursor;
 import com.payment.Payment.util.PaymentMapper;
+import com.payment.Payment.util.StripedLock;
+import com.payment.Payment.util.TransactionIdGenerator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -29,89 +71,150 @@ import java.util.stream.Collectors;
 public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
+    private final PaymentPersistenceService paymentPersistenceService;
     private final CardServiceClient cardServiceClient;
-    private final OrderServiceClient orderServiceClient;
     private final PaymentMapper paymentMapper;
+    private final PaymentCache paymentCache;
+    private final OrderLookupCache orderLookupCache;
+    private final StripedLock orderLocks;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final PaymentSubmissionQueue paymentSubmissionQueue;
+    private final PaymentMetrics paymentMetrics;
+    private final PaymentLogSampler paymentLogSampler;
+    private final PaymentGateway paymentGateway;
+    private final ConflictRetryPolicy conflictRetryPolicy;
+    private final AsyncTaskExecutor downstreamExecutor;
+    private final AsyncTaskExecutor paymentWorkerExecutor;
+    private final Validator validator;
+
+    private static final String OUTCOME_UNCONFIRMED = "Payment outcome is being confirmed with the gateway";
+    private static final String REFUND_UNCONFIRMED = "Refund outcome is being confirmed with the gateway";
+
+    @Value("${payment.batch.max-concurrency:16}")
+    private int batchMaxConcurrency;
+
+    @Value("${payment.page.max-size:100}")
+    private int maxPageSize;
+
+    // A gateway call still unanswered after this is treated as an unknown outcome
+    @Value("${payment.gateway.timeout:10s}")
+    private Duration gatewayTimeout;
 
     @Override
-    @Transactional
     public PaymentResponse processPayment(String userId, String jwtToken, PaymentRequest request) {
-        log.info("Processing payment for user {} on order {}", userId, request.getOrderId());
+        log.debug("Processing payment for user {} on order {}", userId, request.getOrderId());
 
-        // Verify order exists in Order service
-        try {
-            orderServiceClient.getOrder(request.getOrderId(), jwtToken);
-        } catch (ServiceCommunicationException e) {
-            log.error("Order {} not found or order service unavailable: {}", request.getOrderId(), e.getMessage());
-            throw new OrderNotFoundException(request.getOrderId());
+        // Fail fast before calling out; checked again when the record is created
+        paymentPersistenceService.assertNotCompleted(request.getOrderId());
+
+        // Verify order exists and validate card concurrently
+        CardValidationResponse cardValidation = validateOrderAndCard(userId, request, jwtToken);
+
+        if (!cardValidation.isValid()) {
+            log.warn("Card validation failed: {}", cardValidation.getMessage());
+            throw new CardValidationException("Card validation failed: " + cardValidation.getMessage());
         }
 
-        // Check if payment already exists for this order
-        paymentRepository.findByOrderId(request.getOrderId())
-                .ifPresent(existing -> {
-                    if (existing.getStatus() == PaymentStatus.COMPLETED) {
-                        throw new PaymentProcessingException("Payment already completed for this order");
-                    }
-                });
+        // Only the check and insert are serialized per order, as in submitPayment; the
+        // active_order_id constraint keeps a second payment out even across instances
+        Payment processing = orderLocks.runLocked(request.getOrderId(),
+                () -> createPaymentRecord(userId, request, cardValidation));
 
-        // Validate card with Card service
-        CardValidationResponse cardValidation;
+        GatewayResult result;
+        Throwable error = null;
         try {
-            cardValidation = cardServiceClient.validateCard(request.getCardDetails(), jwtToken);
+            result = charge(processing, cardValidation).join();
         } catch (Exception e) {
-            log.error("Card validation failed: {}", e.getMessage());
-            throw new CardValidationException("Card validation service unavailable");
+            result = null;
+            error = e;
         }
 
-        if (!cardValidation.isValid()) {
-            log.warn("Card validation failed: {}", cardValidation.getMessage());
-            throw new CardValidationException("Card validation failed: " + cardValidation.getMessage());
+        Payment payment = recordOutcome(processing, result, error);
+        if (payment.getStatus() != PaymentStatus.COMPLETED) {
+            log.warn("Payment {} for order {} failed: {}",
+                    processing.getId(), request.getOrderId(), payment.getFailureReason());
+            throw new PaymentProcessingException("Payment processing failed: " + payment.getFailureReason());
         }
 
-        // Create payment record
-        Payment payment = Payment.builder()
-                .userId(userId)
-                .orderId(request.getOrderId())
-                .amount(request.getAmount())
-                .currency(request.getCurrency())
-                .status(PaymentStatus.PROCESSING)
-                .cardLastFour(cardValidation.getCardLastFour())
-                .cardType(cardValidation.getCardType())
-                .transactionId(generateTransactionId())
-                .build();
+        if (paymentLogSampler.sampleSuccess()) {
+            log.info("Payment {} completed successfully for order {}",
+                    payment.getTransactionId(), request.getOrderId());
+        }
 
-        payment = paymentRepository.save(payment);
+        return paymentMapper.toResponse(payment);
+    }
 
-        // Simulate payment processing
-        try {
-            // In production, integrate with actual payment gateway
-            simulatePaymentProcessing();
+    @Override
+    public PaymentResponse submitPayment(String userId, String jwtToken, PaymentRequest request) {
+        log.debug("Accepting payment for user {} on order {}", userId, request.getOrderId());
 
-            payment.setStatus(PaymentStatus.COMPLETED);
-            payment = paymentRepository.save(payment);
+        Payment payment = paymentSubmissionQueue.submit(
+                () -> orderLocks.runLocked(request.getOrderId(), () -> createPendingRecord(userId, request)),
+                pending -> processPendingPayment(pending, userId, jwtToken, request));
+        return paymentMapper.toResponse(payment);
+    }
 
-            // Update order status
-            orderServiceClient.updateOrderStatus(request.getOrderId(), "PROCESSING", jwtToken);
+    @Override
+    public BatchPaymentResponse processPayments(String userId, String jwtToken, List<PaymentRequest> requests) {
+        log.debug("Processing batch of {} payments for user {}", requests.size(), userId);
 
-            log.info("Payment {} completed successfully for order {}",
-                    payment.getTransactionId(), request.getOrderId());
+        BatchPaymentItemResult[] results = new BatchPaymentItemResult[requests.size()];
+        List<BatchItem> items = admitBatchItems(requests, results);
 
-        } catch (Exception e) {
-            payment.setStatus(PaymentStatus.FAILED);
-            payment.setFailureReason(e.getMessage());
-            paymentRepository.save(payment);
-            throw new PaymentProcessingException("Payment processing failed: " + e.getMessage());
+        // Verify orders and validate cards with bounded concurrency
+        validateBatchItems(items, userId, jwtToken, results);
+        items.removeIf(item -> results[item.index] != null);
+
+        if (!items.isEmpty()) {
+            createBatchPaymentRecords(userId, items, results);
+            items.removeIf(item -> results[item.index] != null);
         }
 
-        return paymentMapper.toResponse(payment);
+        if (!items.isEmpty()) {
+            Set<Long> unconfirmed = new HashSet<>();
+            Map<Long, String> failureReasons = runBatchGateway(items, unconfirmed);
+
+            for (BatchItem item : items) {
+                Payment payment = recordBatchOutcome(item.payment, unconfirmed, failureReasons);
+                if (payment == null) {
+                    // Left PROCESSING until reconciliation tells whether it was charged
+                    results[item.index] = batchFailure(item.index, item.payment.getOrderId(), OUTCOME_UNCONFIRMED);
+                } else if (payment.getStatus() == PaymentStatus.COMPLETED) {
+                    results[item.index] = BatchPaymentItemResult.builder()
+                            .index(item.index)
+                            .orderId(payment.getOrderId())
+                            .success(true)
+                            .payment(paymentMapper.toResponse(payment))
+                            .build();
+                } else {
+                    results[item.index] = batchFailure(item.index, payment.getOrderId(),
+                            "Payment processing failed: " + payment.getFailureReason());
+                }
+            }
+        }
+
+        List<BatchPaymentItemResult> ordered = Arrays.asList(results);
+        int succeeded = (int) ordered.stream().filter(BatchPaymentItemResult::isSuccess).count();
+        if (succeeded < ordered.size()) {
+            log.warn("Batch for user {} finished: {} succeeded, {} failed", userId, succeeded, ordered.size() - succeeded);
+        } else if (paymentLogSampler.sampleSuccess()) {
+            log.info("Batch for user {} finished: {} succeeded", userId, succeeded);
+        }
+
+        return BatchPaymentResponse.builder()
+                .total(ordered.size())
+                .succeeded(succeeded)
+                .failed(ordered.size() - succeeded)
+                .results(ordered)
+                .build();
     }
 
     @Override
-    @Transactional(readOnly = true)
     public PaymentResponse getPaymentById(Long paymentId, String userId) {
-        Payment payment = paymentRepository.findByIdAndUserId(paymentId, userId)
-                .orElseThrow(() -> new PaymentNotFoundException(paymentId));
-        return paymentMapper.toResponse(payment);
+        return paymentCache.getById(paymentId, userId,
+                () -> paymentRepository.findById(paymentId)
+                        .orElseThrow(() -> new PaymentNotFoundException(paymentId)),
+                () -> new PaymentNotFoundException(paymentId));
     }
 
     @Override
@@ -125,67 +228,459 @@ public class PaymentServiceImpl implements PaymentService {
 
     @Override
     @Transactional(readOnly = true)
+    public PaymentPageResponse getUserPaymentsPage(String userId, String cursor, int limit) {
+        Limit pageLimit = Limit.of(Math.max(1, Math.min(limit, maxPageSize)));
+        List<PaymentSummary> payments;
+        if (cursor == null || cursor.isBlank()) {
+            payments = paymentRepository.findFirstPageByUserId(userId, pageLimit);
+        } else {
+            PaymentCursor after = PaymentCursor.decode(cursor);
+            payments = paymentRepository.findPageByUserIdAfter(userId, after.getCreatedAt(), after.getId(), pageLimit);
+        }
+
+        String nextCursor = null;
+        if (payments.size() == pageLimit.max()) {
+            PaymentSummary last = payments.get(payments.size() - 1);
+            nextCursor = new PaymentCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return PaymentPageResponse.builder()
+                .items(payments.stream()
+                        .map(paymentMapper::toResponse)
+                        .collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUserPayments(String userId, Consumer<PaymentResponse> consumer) {
+        try (Stream<PaymentSummary> payments = paymentRepository.streamByUserId(userId)) {
+            payments.forEach(payment -> consumer.accept(paymentMapper.toResponse(payment)));
+        }
+    }
+
+    @Override
     public PaymentResponse getPaymentByOrderId(Long orderId, String userId) {
-        Payment payment = paymentRepository.findByOrderId(orderId)
-                .filter(p -> p.getUserId().equals(userId))
-                .orElseThrow(() -> new PaymentNotFoundException("Payment not found for order: " + orderId));
-        return paymentMapper.toResponse(payment);
+        return paymentCache.getByOrderId(orderId, userId,
+                () -> paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(orderId)
+                        .orElseThrow(() -> new PaymentNotFoundException("Payment not found for order: " + orderId)),
+                () -> new PaymentNotFoundException("Payment not found for order: " + orderId));
     }
 
     @Override
-    @Transactional
-    public PaymentResponse refundPayment(String userId, String jwtToken, RefundRequest request) {
-        log.info("Processing refund for payment {} by user {}", request.getPaymentId(), userId);
+    public PaymentResponse refundPayment(String userId, RefundRequest request) {
+        log.debug("Processing refund for payment {} by user {}", request.getPaymentId(), userId);
+
+        // Reserve the amount first so concurrent refunds cannot overdraw the payment
+        Refund refund = paymentMetrics.time(Stage.REFUND_RESERVE, () -> conflictRetryPolicy.execute(
+                () -> paymentPersistenceService.reserveRefund(
+                        request.getPaymentId(), userId, request.getAmount(), request.getReason())));
+        Long refundId = refund.getId();
+        Payment refunded = refund.getPayment();
+
+        // Until the gateway says otherwise the money may have gone back to the customer,
+        // so only a decline releases the reserved amount; unknown outcomes stay PENDING
+        // for the recovery sweep to settle
+        GatewayResult result;
+        try {
+            result = paymentMetrics.timeAsync(Stage.REFUND_GATEWAY, () -> paymentGateway.refund(
+                    refunded.getTransactionId(), String.valueOf(refundId), refund.getAmount(),
+                    refunded.getCurrency()).orTimeout(gatewayTimeout.toNanos(), TimeUnit.NANOSECONDS)).join();
+        } catch (Exception e) {
+            log.error("Gateway outcome of refund {} is unknown, leaving it for reconciliation: {}",
+                    refundId, failureMessage(e));
+            throw new RefundException(REFUND_UNCONFIRMED);
+        }
+        if (!result.isApproved()) {
+            String reason = "Refund declined: " + result.getDeclineReason();
+            log.warn("Refund {} of payment {} failed: {}", refundId, request.getPaymentId(), reason);
+            paymentMetrics.time(Stage.REFUND_UPDATE, () -> conflictRetryPolicy.execute(
+                    () -> paymentPersistenceService.releaseRefund(refundId, reason)));
+            throw new RefundException(reason);
+        }
+
+        String gatewayReference = result.getReference();
+        Payment payment;
+        try {
+            payment = paymentMetrics.time(Stage.REFUND_UPDATE, () -> conflictRetryPolicy.execute(
+                    () -> paymentPersistenceService.completeRefund(refundId, gatewayReference)));
+        } catch (RuntimeException e) {
+            log.error("Refund {} was carried out but could not be completed, leaving it for reconciliation: {}",
+                    refundId, e.getMessage());
+            throw new RefundException(REFUND_UNCONFIRMED);
+        }
+
+        if (paymentLogSampler.sampleSuccess()) {
+            log.info("Refund of {} {} completed for payment {}",
+                    refund.getAmount(), payment.getCurrency(), payment.getTransactionId());
+        }
+
+        return paymentMapper.toResponse(payment);
+    }
+
+    private Payment createPaymentRecord(String userId, PaymentRequest request, CardValidationResponse cardValidation) {
+        try {
+            return paymentMetrics.time(Stage.DB_INSERT, () -> paymentPersistenceService.createProcessingPayment(
+                    userId, request, cardValidation, transactionIdGenerator.nextTransactionId()));
+        } catch (DataIntegrityViolationException e) {
+            throw insertFailure(request.getOrderId(), e);
+        }
+    }
+
+    private Payment createPendingRecord(String userId, PaymentRequest request) {
+        try {
+            return paymentMetrics.time(Stage.DB_INSERT, () -> paymentPersistenceService.createPendingPayment(
+                    userId, request, transactionIdGenerator.nextTransactionId()));
+        } catch (DataIntegrityViolationException e) {
+            throw insertFailure(request.getOrderId(), e);
+        }
+    }
+
+    /**
+     * Only a clash on active_order_id means the order is taken. Anything else, such as
+     * a duplicate transaction id from two nodes sharing a node id, is a fault of ours
+     * and must not be reported as a concurrent payment.
+     */
+    private RuntimeException insertFailure(Long orderId, DataIntegrityViolationException e) {
+        String cause = String.valueOf(e.getMostSpecificCause().getMessage());
+        if (cause.toLowerCase(Locale.ROOT).contains("active_order_id")) {
+            log.warn("Could not create payment for order {}: another payment holds it", orderId);
+            return new PaymentProcessingException("Another payment for this order is already in progress");
+        }
+        log.error("Could not create payment for order {}: {}", orderId, cause);
+        return new PaymentProcessingException("Payment could not be recorded", e);
+    }
+
+    /**
+     * Runs on the payment worker pool: PENDING -> PROCESSING -> COMPLETED or FAILED.
+     * Any failure before completion is recorded on the row for the polling caller.
+     * The worker is released while the gateway call is in flight; the returned
+     * stage completes once the outcome has been recorded.
+     */
+    private CompletableFuture<Void> processPendingPayment(Payment pending, String userId, String jwtToken,
+                                                          PaymentRequest request) {
+        Long paymentId = pending.getId();
+        Payment processing;
+        CardValidationResponse cardValidation;
+        try {
+            cardValidation = validateOrderAndCard(userId, request, jwtToken);
+            if (!cardValidation.isValid()) {
+                log.warn("Card validation failed for payment {}: {}", paymentId, cardValidation.getMessage());
+                recordFailure(pending, "Card validation failed: " + cardValidation.getMessage());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            processing = paymentMetrics.time(Stage.DB_UPDATE,
+                    () -> paymentPersistenceService.markProcessing(pending, cardValidation));
+        } catch (Exception e) {
+            log.warn("Payment {} for order {} failed: {}", paymentId, request.getOrderId(), e.getMessage());
+            recordFailure(pending, e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
 
-        Payment payment = paymentRepository.findByIdAndUserId(request.getPaymentId(), userId)
-                .orElseThrow(() -> new PaymentNotFoundException(request.getPaymentId()));
+        return charge(processing, cardValidation).handleAsync((result, error) -> {
+            completePendingPayment(processing, request, result, error);
+            return null;
+        }, paymentWorkerExecutor);
+    }
+
+    private void completePendingPayment(Payment processing, PaymentRequest request,
+                                        GatewayResult result, Throwable error) {
+        Payment payment;
+        try {
+            payment = recordOutcome(processing, result, error);
+        } catch (PaymentProcessingException | OptimisticLockingFailureException e) {
+            log.warn("Could not record outcome of payment {}: {}", processing.getId(), e.getMessage());
+            return;
+        }
 
         if (payment.getStatus() != PaymentStatus.COMPLETED) {
-            throw new RefundException("Can only refund completed payments. Current status: " + payment.getStatus());
+            log.warn("Payment {} for order {} failed: {}",
+                    processing.getId(), request.getOrderId(), payment.getFailureReason());
+        } else if (paymentLogSampler.sampleSuccess()) {
+            log.info("Payment {} completed successfully for order {}",
+                    payment.getTransactionId(), request.getOrderId());
         }
+    }
 
-        if (payment.getStatus() == PaymentStatus.REFUNDED) {
-            throw new RefundException("Payment has already been refunded");
+    /**
+     * Records the outcome of charging {@code processing}. Only a definite decline
+     * fails the payment. When the gateway call failed or timed out, or the charge
+     * went through but could not be recorded, the customer may have paid: failing
+     * the payment would free the order for a second charge. Such a payment stays
+     * PROCESSING, holding its order, until {@link UnfinishedPaymentRecovery} settles
+     * it with the gateway, and the caller is told the outcome is being confirmed.
+     */
+    private Payment recordOutcome(Payment processing, GatewayResult result, Throwable error) {
+        if (error == null && !result.isApproved()) {
+            String reason = "Payment declined: " + result.getDeclineReason();
+            return paymentMetrics.time(Stage.DB_UPDATE, () -> paymentPersistenceService.markFailed(processing, reason));
         }
 
-        // Simulate refund processing
+        if (error == null) {
+            try {
+                return paymentMetrics.time(Stage.DB_UPDATE, () -> paymentPersistenceService.markCompleted(processing));
+            } catch (RuntimeException e) {
+                log.error("Payment {} was charged but could not be completed, leaving it for reconciliation: {}",
+                        processing.getId(), e.getMessage());
+            }
+        } else {
+            log.error("Gateway outcome of payment {} is unknown, leaving it for reconciliation: {}",
+                    processing.getId(), failureMessage(error));
+        }
+        throw new PaymentProcessingException(OUTCOME_UNCONFIRMED);
+    }
+
+    /**
+     * Fails an asynchronous payment unless it has moved on from {@code expected}
+     * in the meantime, e.g. was failed by the restart recovery.
+     */
+    private void recordFailure(Payment expected, String failureReason) {
         try {
-            simulateRefundProcessing();
+            paymentPersistenceService.markFailed(expected, failureReason);
+        } catch (PaymentProcessingException | OptimisticLockingFailureException e) {
+            log.warn("Could not record failure of payment {}: {}", expected.getId(), e.getMessage());
+        }
+    }
 
-            payment.setStatus(PaymentStatus.REFUNDED);
-            payment = paymentRepository.save(payment);
+    private CompletableFuture<GatewayResult> charge(Payment payment, CardValidationResponse cardValidation) {
+        AuthorizationRequest authorization = AuthorizationRequest.builder()
+                .transactionId(payment.getTransactionId())
+                .orderId(payment.getOrderId())
+                .amount(payment.getAmount())
+                .currency(payment.getCurrency())
+                .cardToken(cardValidation.getValidationToken())
+                .build();
+        return paymentMetrics.timeAsync(Stage.GATEWAY, () -> paymentGateway.charge(authorization)
+                .orTimeout(gatewayTimeout.toNanos(), TimeUnit.NANOSECONDS));
+    }
 
-            // Update order status
-            orderServiceClient.updateOrderStatus(payment.getOrderId(), "CANCELLED", jwtToken);
+    private static String failureMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        // A timeout carries no message
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
 
-            log.info("Refund completed for payment {}", payment.getTransactionId());
+    private CardValidationResponse validateOrderAndCard(String userId, PaymentRequest request, String jwtToken) {
+        CompletionService<Object> completion = new ExecutorCompletionService<>(downstreamExecutor);
+        Future<Object> orderLookup = completion.submit(() -> paymentMetrics.time(Stage.ORDER_LOOKUP,
+                () -> orderLookupCache.getOrder(request.getOrderId(), userId, jwtToken)));
+        Future<Object> cardLookup = completion.submit(() -> paymentMetrics.time(Stage.CARD_VALIDATION,
+                () -> cardServiceClient.validateCard(request.getCardDetails(), jwtToken)));
 
-        } catch (Exception e) {
-            throw new RefundException("Refund processing failed: " + e.getMessage());
+        try {
+            for (int i = 0; i < 2; i++) {
+                Future<Object> done = completion.take();
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    orderLookup.cancel(true);
+                    cardLookup.cancel(true);
+                    throw done == orderLookup
+                            ? orderLookupFailure(request.getOrderId(), e.getCause())
+                            : cardValidationFailure(e.getCause());
+                }
+            }
+            return (CardValidationResponse) cardLookup.get();
+        } catch (InterruptedException | ExecutionException e) {
+            orderLookup.cancel(true);
+            cardLookup.cancel(true);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new PaymentProcessingException("Payment validation interrupted", e);
         }
+    }
 
-        return paymentMapper.toResponse(payment);
+    private RuntimeException orderLookupFailure(Long orderId, Throwable cause) {
+        if (cause instanceof ServiceCommunicationException) {
+            log.error("Order {} not found or order service unavailable: {}", orderId, cause.getMessage());
+            return new OrderNotFoundException(orderId);
+        }
+        return cause instanceof RuntimeException runtime
+                ? runtime
+                : new PaymentProcessingException("Order lookup failed", cause);
     }
 
-    private String generateTransactionId() {
-        return "TXN-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    private RuntimeException cardValidationFailure(Throwable cause) {
+        log.error("Card validation failed: {}", cause.getMessage());
+        return new CardValidationException("Card validation service unavailable");
     }
 
-    private void simulatePaymentProcessing() {
-        // Simulate payment gateway processing time
+    private List<BatchItem> admitBatchItems(List<PaymentRequest> requests, BatchPaymentItemResult[] results) {
+        Set<Long> orderIds = new HashSet<>();
+        List<BatchItem> items = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = batchFailure(i, null, "Payment request is required");
+                continue;
+            }
+            Set<ConstraintViolation<PaymentRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                results[i] = batchFailure(i, request.getOrderId(), violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            } else if (!orderIds.add(request.getOrderId())) {
+                results[i] = batchFailure(i, request.getOrderId(), "Duplicate order in batch");
+            } else {
+                items.add(new BatchItem(i, request));
+            }
+        }
+
+        if (!items.isEmpty()) {
+            Set<Long> completedOrderIds = paymentPersistenceService.findCompletedOrderIds(orderIds);
+            items.removeIf(item -> {
+                if (!completedOrderIds.contains(item.request.getOrderId())) {
+                    return false;
+                }
+                results[item.index] = batchFailure(item.index, item.request.getOrderId(),
+                        "Payment already completed for this order");
+                return true;
+            });
+        }
+        return items;
+    }
+
+    private void createBatchPaymentRecords(String userId, List<BatchItem> items, BatchPaymentItemResult[] results) {
         try {
-            Thread.sleep(100);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            List<Payment> saved = paymentPersistenceService.createProcessingPayments(items.stream()
+                    .map(item -> paymentPersistenceService.newProcessingPayment(
+                            userId, item.request, item.cardValidation, transactionIdGenerator.nextTransactionId()))
+                    .collect(Collectors.toList()));
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).payment = saved.get(i);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent payment holds one of the orders; insert one by one to find which
+            log.warn("Batch insert conflicted with concurrent payments, retrying items individually");
+            for (BatchItem item : items) {
+                try {
+                    item.payment = createPaymentRecord(userId, item.request, item.cardValidation);
+                } catch (PaymentProcessingException ex) {
+                    results[item.index] = batchFailure(item.index, item.request.getOrderId(), ex.getMessage());
+                }
+            }
         }
     }
 
-    private void simulateRefundProcessing() {
-        // Simulate refund processing time
+    private void validateBatchItems(List<BatchItem> items, String userId, String jwtToken,
+                                    BatchPaymentItemResult[] results) {
+        Semaphore inFlight = new Semaphore(batchMaxConcurrency);
         try {
-            Thread.sleep(100);
+            for (BatchItem item : items) {
+                inFlight.acquire();
+                PaymentRequest request = item.request;
+                item.orderLookup = CompletableFuture.supplyAsync(
+                        () -> orderLookupCache.getOrder(request.getOrderId(), userId, jwtToken),
+                        downstreamExecutor);
+                item.cardLookup = CompletableFuture.supplyAsync(
+                        () -> cardServiceClient.validateCard(request.getCardDetails(), jwtToken), downstreamExecutor);
+                CompletableFuture.allOf(item.orderLookup, item.cardLookup)
+                        .whenComplete((ignored, e) -> inFlight.release());
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            throw new PaymentProcessingException("Batch validation interrupted", e);
+        }
+
+        for (BatchItem item : items) {
+            Long orderId = item.request.getOrderId();
+            try {
+                item.orderLookup.join();
+            } catch (CompletionException e) {
+                results[item.index] = batchFailure(item.index, orderId,
+                        orderLookupFailure(orderId, e.getCause()).getMessage());
+                continue;
+            }
+            try {
+                CardValidationResponse cardValidation = item.cardLookup.join();
+                if (cardValidation.isValid()) {
+                    item.cardValidation = cardValidation;
+                } else {
+                    results[item.index] = batchFailure(item.index, orderId,
+                            "Card validation failed: " + cardValidation.getMessage());
+                }
+            } catch (CompletionException e) {
+                results[item.index] = batchFailure(item.index, orderId,
+                        cardValidationFailure(e.getCause()).getMessage());
+            }
+        }
+    }
+
+    /**
+     * Completes or fails one charged batch item in its own short transaction, so a
+     * payment settled concurrently, e.g. by the recovery sweep, only affects its own
+     * item. Returns null when the outcome could not be recorded; the payment then
+     * stays PROCESSING for reconciliation.
+     */
+    private Payment recordBatchOutcome(Payment processing, Set<Long> unconfirmed, Map<Long, String> failureReasons) {
+        if (unconfirmed.contains(processing.getId())) {
+            return null;
+        }
+        String failureReason = failureReasons.get(processing.getId());
+        try {
+            return paymentMetrics.time(Stage.DB_UPDATE, () -> failureReason == null
+                    ? paymentPersistenceService.markCompleted(processing)
+                    : paymentPersistenceService.markFailed(processing, failureReason));
+        } catch (RuntimeException e) {
+            log.error("Could not record outcome of payment {}, leaving it for reconciliation: {}",
+                    processing.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Charges the batch and returns the decline reason of each declined payment.
+     * Payments whose gateway call failed may still have been charged; their ids go
+     * to {@code unconfirmed} instead.
+     */
+    private Map<Long, String> runBatchGateway(List<BatchItem> items, Set<Long> unconfirmed) {
+        // Gateway calls hold no thread while in flight, so the whole batch is issued at once
+        Map<Long, CompletableFuture<GatewayResult>> gatewayCalls = new LinkedHashMap<>();
+        for (BatchItem item : items) {
+            gatewayCalls.put(item.payment.getId(), charge(item.payment, item.cardValidation));
+        }
+
+        Map<Long, String> failureReasons = new HashMap<>();
+        gatewayCalls.forEach((paymentId, call) -> {
+            try {
+                GatewayResult result = call.join();
+                if (!result.isApproved()) {
+                    failureReasons.put(paymentId, "Payment declined: " + result.getDeclineReason());
+                }
+            } catch (CompletionException e) {
+                log.error("Gateway outcome of payment {} is unknown, leaving it for reconciliation: {}",
+                        paymentId, failureMessage(e));
+                unconfirmed.add(paymentId);
+            }
+        });
+        return failureReasons;
+    }
+
+    private BatchPaymentItemResult batchFailure(int index, Long orderId, String error) {
+        return BatchPaymentItemResult.builder()
+                .index(index)
+                .orderId(orderId)
+                .success(false)
+                .error(error)
+                .build();
+    }
+
+    private static final class BatchItem {
+
+        private final int index;
+        private final PaymentRequest request;
+        private CompletableFuture<Map<String, Object>> orderLookup;
+        private CompletableFuture<CardValidationResponse> cardLookup;
+        private CardValidationResponse cardValidation;
+        private Payment payment;
+
+        private BatchItem(int index, PaymentRequest request) {
+            this.index = index;
+            this.request = request;
         }
     }
 }
@@ -0,0 +1,90 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.exception.PaymentQueueFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Admits asynchronously submitted payments onto the worker pool. A slot is
+ * reserved before anything is written, so once every worker is busy and the
+ * queue is full new submissions are rejected instead of piling up PENDING rows.
+ */
+@Component
+@Slf4j
+public class PaymentSubmissionQueue {
+
+    private final AsyncTaskExecutor paymentWorkerExecutor;
+    private final int capacity;
+    private final Semaphore slots;
+
+    public PaymentSubmissionQueue(@Qualifier("paymentWorkerExecutor") AsyncTaskExecutor paymentWorkerExecutor,
+                                  @Value("${payment.async.workers:8}") int workers,
+                                  @Value("${payment.async.queue-capacity:500}") int queueCapacity) {
+        this.paymentWorkerExecutor = paymentWorkerExecutor;
+        this.capacity = workers + queueCapacity;
+        this.slots = new Semaphore(capacity);
+    }
+
+    /**
+     * Reserves a slot, runs {@code admission} on the calling thread and hands its
+     * result to {@code work} on the worker pool. The slot is freed when the stage
+     * returned by the work completes, so a payment waiting on the gateway keeps its
+     * slot without holding a worker, or when admission fails.
+     *
+     * @throws PaymentQueueFullException if no slot is free
+     */
+    public <T> T submit(Supplier<T> admission, Function<T, ? extends CompletionStage<?>> work) {
+        if (!slots.tryAcquire()) {
+            throw new PaymentQueueFullException("Payment queue is full, retry later");
+        }
+
+        T admitted;
+        try {
+            admitted = admission.get();
+        } catch (RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+
+        try {
+            paymentWorkerExecutor.execute(() -> {
+                CompletionStage<?> completion;
+                try {
+                    completion = work.apply(admitted);
+                } catch (RuntimeException e) {
+                    log.error("Asynchronous payment work failed: {}", e.getMessage(), e);
+                    slots.release();
+                    return;
+                }
+                completion.whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        log.error("Asynchronous payment work failed: {}", e.getMessage(), e);
+                    }
+                    slots.release();
+                });
+            });
+        } catch (TaskRejectedException e) {
+            // Only happens while shutting down; the row is picked up as stale on the next start
+            slots.release();
+            log.error("Payment worker pool rejected submitted work: {}", e.getMessage());
+        }
+        return admitted;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAvailableSlots() {
+        return slots.availablePermits();
+    }
+}
@@ -0,0 +1,87 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Finishes payments left PENDING or PROCESSING by a run that died. At startup
+ * that is every such payment this instance accepted, since its workers and
+ * request state died with the previous run; payments of other instances are
+ * left to them. Payments of any instance that have not moved for
+ * {@code payment.recovery.stale-after} are treated the same way, which covers
+ * instances that never came back.
+ * <p>
+ * A PENDING payment has not reached the gateway yet and is failed. A PROCESSING
+ * one may have been charged, so it is settled through {@link PaymentReconciler}.
+ * The sweep settles refunds left PENDING the same way, so their reserved amount
+ * is either spent or given back.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UnfinishedPaymentRecovery {
+
+    private final PaymentPersistenceService paymentPersistenceService;
+    private final PaymentReconciler paymentReconciler;
+
+    @Value("${payment.recovery.stale-after:10m}")
+    private Duration staleAfter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOwnPayments() {
+        recover(paymentPersistenceService.findOwnUnfinished(PaymentStatus.PENDING),
+                paymentPersistenceService.findOwnUnfinished(PaymentStatus.PROCESSING),
+                "Interrupted by service restart");
+    }
+
+    @Scheduled(fixedDelayString = "${payment.recovery.interval-ms:60000}",
+            initialDelayString = "${payment.recovery.interval-ms:60000}")
+    public void recoverStalePayments() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(staleAfter);
+        recover(paymentPersistenceService.findStale(PaymentStatus.PENDING, cutoff),
+                paymentPersistenceService.findStale(PaymentStatus.PROCESSING, cutoff),
+                "Abandoned by the instance processing it");
+
+        List<Long> refundIds = paymentPersistenceService.findStaleRefundIds(cutoff);
+        if (!refundIds.isEmpty()) {
+            long settled = refundIds.stream().filter(paymentReconciler::reconcileRefund).count();
+            log.warn("Settled {} of {} abandoned PENDING refunds", settled, refundIds.size());
+        }
+    }
+
+    private void recover(List<Payment> pending, List<Payment> processing, String failureReason) {
+        int failed = 0;
+        for (Payment payment : pending) {
+            try {
+                paymentPersistenceService.markFailed(payment, failureReason);
+                failed++;
+            } catch (OptimisticLockingFailureException e) {
+                log.debug("Payment {} moved on before it could be failed", payment.getId());
+            }
+        }
+
+        int settled = 0;
+        for (Payment payment : processing) {
+            if (paymentReconciler.reconcile(payment, failureReason).isPresent()) {
+                settled++;
+            }
+        }
+
+        if (failed > 0 || !processing.isEmpty()) {
+            log.warn("Failed {} abandoned PENDING payments and settled {} of {} PROCESSING ones",
+                    failed, settled, processing.size());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.payment.Payment.util;
 
 import com.payment.Payment.dto.response.PaymentResponse;
 import com.payment.Payment.entity.Payment;
+import com.payment.Payment.repository.projection.PaymentSummary;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -14,6 +15,7 @@ public class PaymentMapper {
                 .amount(payment.getAmount())
                 .currency(payment.getCurrency())
                 .status(payment.getStatus())
+                .refundedAmount(payment.getRefundedAmount())
                 .cardLastFour(payment.getCardLastFour())
                 .cardType(payment.getCardType())
                 .transactionId(payment.getTransactionId())
@@ -22,4 +24,21 @@ public class PaymentMapper {
                 .updatedAt(payment.getUpdatedAt())
                 .build();
     }
+
+    public PaymentResponse toResponse(PaymentSummary summary) {
+        return PaymentResponse.builder()
+                .id(summary.getId())
+                .orderId(summary.getOrderId())
+                .amount(summary.getAmount())
+                .currency(summary.getCurrency())
+                .status(summary.getStatus())
+                .refundedAmount(summary.getRefundedAmount())
+                .cardLastFour(summary.getCardLastFour())
+                .cardType(summary.getCardType())
+                .transactionId(summary.getTransactionId())
+                .failureReason(summary.getFailureReason())
+                .createdAt(summary.getCreatedAt())
+                .updatedAt(summary.getUpdatedAt())
+                .build();
+    }
 }
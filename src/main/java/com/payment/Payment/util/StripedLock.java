@@ -0,0 +1,45 @@
+package com.payment.Payment.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed array of locks selected by key hash. Work for the same key is serialized
+ * while different keys only contend when they happen to share a stripe, and the
+ * memory used is independent of the number of keys.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T runLocked(Object key, Supplier<T> action) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    ReentrantLock lockFor(Object key) {
+        int hash = key.hashCode();
+        // Spread high bits down so keys that differ only in high bits still spread out
+        hash ^= (hash >>> 16);
+        return stripes[hash & mask];
+    }
+}
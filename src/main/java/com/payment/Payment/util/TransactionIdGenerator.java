@@ -0,0 +1,70 @@
+package com.payment.Payment.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered 64-bit ids laid out as 41 bits of milliseconds since
+ * {@link #EPOCH_MILLIS}, a 13-bit per-millisecond sequence and a 10-bit node id.
+ * A single atomic accumulate keeps ids strictly increasing across threads
+ * without locks; when more than 8192 ids are taken in one millisecond the
+ * sequence carries into the timestamp and the clock catches up afterwards. If
+ * the wall clock steps back the ids keep increasing from the last one issued.
+ * Transaction ids are the value in Crockford base32 behind a {@code TXN-} prefix,
+ * fixed width so they sort like the numbers they encode.
+ */
+public class TransactionIdGenerator {
+
+    /** 2024-01-01T00:00:00Z; 41 bits of milliseconds last until 2093. */
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 13;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final byte[] PREFIX = "TXN-".getBytes(StandardCharsets.US_ASCII);
+    private static final int ENCODED_LENGTH = 13;
+    private static final byte[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // Timestamp and sequence of the last id issued, without the node bits
+    private final AtomicLong last = new AtomicLong();
+
+    public TransactionIdGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    public TransactionIdGenerator(int nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        long earliest = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long timeAndSequence = last.accumulateAndGet(earliest, (previous, now) -> Math.max(previous + 1, now));
+        return (timeAndSequence << NODE_BITS) | nodeId;
+    }
+
+    public String nextTransactionId() {
+        return format(nextId());
+    }
+
+    public static String format(long id) {
+        byte[] chars = new byte[PREFIX.length + ENCODED_LENGTH];
+        System.arraycopy(PREFIX, 0, chars, 0, PREFIX.length);
+        for (int i = chars.length - 1; i >= PREFIX.length; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+}
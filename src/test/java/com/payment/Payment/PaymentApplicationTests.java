@@ -3,7 +3,8 @@ package com.payment.Payment;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// An in-memory database, so the run leaves the development database under ./data alone
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:context-loads")
 class PaymentApplicationTests {
 
 	@Test
@@ -0,0 +1,173 @@
+package com.payment.Payment.cache;
+
+import com.payment.Payment.exception.ServiceCommunicationException;
+import com.payment.Payment.service.OrderServiceClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderLookupCacheTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentLookupsOfTheSameOrderShareOneCall() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderLookupCache cache = cache(Duration.ofMinutes(1), Duration.ofMinutes(1), call -> {
+            entered.countDown();
+            await(release);
+            return order(7L);
+        });
+
+        List<Future<Map<String, Object>>> lookups = new ArrayList<>();
+        lookups.add(executor.submit(() -> cache.getOrder(7L, "user-1", "token-1")));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < 4; i++) {
+            lookups.add(executor.submit(() -> cache.getOrder(7L, "user-1", "token-1")));
+        }
+        release.countDown();
+
+        for (Future<Map<String, Object>> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).isEqualTo(order(7L));
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void cachesOrdersPerUserUntilTheTtlRunsOut() throws Exception {
+        OrderLookupCache cache = cache(Duration.ofMillis(200), Duration.ofMillis(200), call -> order(7L));
+
+        cache.getOrder(7L, "user-1", "token-1");
+        cache.getOrder(7L, "user-1", "token-1");
+        assertThat(calls).hasValue(1);
+
+        cache.getOrder(7L, "user-2", "token-2");
+        assertThat(calls).hasValue(2);
+
+        Thread.sleep(400);
+        cache.getOrder(7L, "user-1", "token-1");
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void cachesFailuresForTheShorterFailureTtl() throws Exception {
+        OrderLookupCache cache = cache(Duration.ofMinutes(1), Duration.ofMillis(200), call -> {
+            throw new ServiceCommunicationException("Order", "404 Not Found");
+        });
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> cache.getOrder(7L, "user-1", "token-1"))
+                    .isInstanceOf(ServiceCommunicationException.class)
+                    .hasMessageContaining("404 Not Found");
+        }
+        assertThat(calls).hasValue(1);
+
+        Thread.sleep(400);
+        assertThatThrownBy(() -> cache.getOrder(7L, "user-1", "token-1"))
+                .isInstanceOf(ServiceCommunicationException.class);
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheTheFailureOfALookupWhoseThreadWasInterrupted() {
+        OrderLookupCache cache = cache(Duration.ofMinutes(1), Duration.ofMinutes(1), call -> {
+            if (call == 1) {
+                Thread.currentThread().interrupt();
+                throw new ServiceCommunicationException("Order", "too many concurrent calls");
+            }
+            return order(7L);
+        });
+
+        assertThatThrownBy(() -> cache.getOrder(7L, "user-1", "token-1"))
+                .isInstanceOf(ServiceCommunicationException.class);
+        assertThat(Thread.interrupted()).isTrue();
+
+        assertThat(cache.getOrder(7L, "user-1", "token-1")).isEqualTo(order(7L));
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheAFailureCausedByAnInterruptedRead() {
+        OrderLookupCache cache = cache(Duration.ofMinutes(1), Duration.ofMinutes(1), call -> {
+            if (call == 1) {
+                throw new ServiceCommunicationException("Order", "interrupted", new InterruptedIOException());
+            }
+            return order(7L);
+        });
+
+        assertThatThrownBy(() -> cache.getOrder(7L, "user-1", "token-1"))
+                .isInstanceOf(ServiceCommunicationException.class);
+
+        assertThat(cache.getOrder(7L, "user-1", "token-1")).isEqualTo(order(7L));
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void callersWaitingOnAnInterruptedLookupFetchTheOrderThemselves() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OrderLookupCache cache = cache(Duration.ofMinutes(1), Duration.ofMinutes(1), call -> {
+            if (call == 1) {
+                entered.countDown();
+                await(release);
+                throw new ServiceCommunicationException("Order", "interrupted", new InterruptedException());
+            }
+            return order(7L);
+        });
+
+        Future<Map<String, Object>> abandoned = executor.submit(() -> cache.getOrder(7L, "user-1", "token-1"));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Map<String, Object>> waiting = executor.submit(() -> cache.getOrder(7L, "user-1", "token-1"));
+        release.countDown();
+
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isEqualTo(order(7L));
+        assertThatThrownBy(() -> abandoned.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ServiceCommunicationException.class);
+        assertThat(calls).hasValue(2);
+    }
+
+    private OrderLookupCache cache(Duration ttl, Duration failureTtl, Function<Integer, Map<String, Object>> orderService) {
+        OrderServiceClient client = new OrderServiceClient(null, null) {
+            @Override
+            public Map<String, Object> getOrder(Long orderId, String jwtToken) {
+                return orderService.apply(calls.incrementAndGet());
+            }
+        };
+        return new OrderLookupCache(client, new SimpleMeterRegistry(), 100, ttl, failureTtl);
+    }
+
+    private static Map<String, Object> order(Long orderId) {
+        return Map.of("id", orderId, "status", "PENDING");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
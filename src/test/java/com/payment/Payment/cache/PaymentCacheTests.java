@@ -0,0 +1,133 @@
+package com.payment.Payment.cache;
+
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.exception.PaymentNotFoundException;
+import com.payment.Payment.util.PaymentMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentCacheTests {
+
+    private final PaymentCache cache = new PaymentCache(
+            new PaymentMapper(), new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile Payment stored = payment(PaymentStatus.PROCESSING);
+
+    @Test
+    void servesTheCachedPaymentUntilTheWritingTransactionCommits() {
+        assertThat(getById().getStatus()).isEqualTo(PaymentStatus.PROCESSING);
+        assertThat(getByOrderId().getStatus()).isEqualTo(PaymentStatus.PROCESSING);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            stored = payment(PaymentStatus.COMPLETED);
+            cache.evictAfterCommit(stored);
+            assertThat(getById().getStatus()).isEqualTo(PaymentStatus.PROCESSING);
+        });
+
+        assertThat(getById().getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(getByOrderId().getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void keepsTheEntryWhenTheWritingTransactionRollsBack() {
+        getById();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.evictAfterCommit(stored);
+            status.setRollbackOnly();
+        });
+
+        getById();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void evictsImmediatelyOutsideATransaction() {
+        getById();
+
+        cache.evictAfterCommit(stored);
+
+        getById();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void anotherUsersLookupMissesEvenWhenThePaymentIsCached() {
+        getById();
+        getByOrderId();
+
+        assertThatThrownBy(() -> cache.getById(1L, "user-2", this::load, notFound()))
+                .isInstanceOf(PaymentNotFoundException.class);
+        assertThatThrownBy(() -> cache.getByOrderId(10L, "user-2", this::load, notFound()))
+                .isInstanceOf(PaymentNotFoundException.class);
+        assertThat(getById().getId()).isEqualTo(1L);
+        assertThat(loads).hasValue(2);
+    }
+
+    private PaymentResponse getById() {
+        return cache.getById(1L, "user-1", this::load, notFound());
+    }
+
+    private PaymentResponse getByOrderId() {
+        return cache.getByOrderId(10L, "user-1", this::load, notFound());
+    }
+
+    private Payment load() {
+        loads.incrementAndGet();
+        return stored;
+    }
+
+    private static Supplier<RuntimeException> notFound() {
+        return () -> new PaymentNotFoundException("Payment not found");
+    }
+
+    private static Payment payment(PaymentStatus status) {
+        return Payment.builder()
+                .id(1L)
+                .userId("user-1")
+                .orderId(10L)
+                .amount(new BigDecimal("25.00"))
+                .currency("USD")
+                .status(status)
+                .build();
+    }
+
+    /**
+     * Runs transaction synchronizations without a resource behind them.
+     */
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.PaymentApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentSchemaMigrationTests {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void widensAStatusColumnCreatedBeforePartialRefunds() {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            // The column as Hibernate created it before PARTIALLY_REFUNDED existed
+            context.getBean(JdbcTemplate.class).execute("ALTER TABLE payments ALTER COLUMN status"
+                    + " ENUM('COMPLETED', 'FAILED', 'PENDING', 'PROCESSING', 'REFUNDED') NOT NULL");
+        }
+
+        try (ConfigurableApplicationContext context = startApplication()) {
+            assertThat(context.getBean(JdbcTemplate.class).queryForList(
+                    "SELECT VALUE_NAME FROM INFORMATION_SCHEMA.ENUM_VALUES WHERE OBJECT_NAME = 'PAYMENTS'"
+                            + " ORDER BY VALUE_ORDINAL", String.class))
+                    .containsExactly("COMPLETED", "FAILED", "PARTIALLY_REFUNDED", "PENDING", "PROCESSING", "REFUNDED");
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() {
+        return new SpringApplicationBuilder(PaymentApplication.class)
+                .run("--server.port=0",
+                        "--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("paymentdb"),
+                        "--spring.jpa.show-sql=false");
+    }
+}
@@ -0,0 +1,106 @@
+package com.payment.Payment.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RestClientConfigTests {
+
+    private HttpServer slowServer;
+    private ExecutorService serverExecutor;
+
+    @BeforeEach
+    void startSlowServer() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        slowServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        slowServer.createContext("/api/cards/validate", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"valid\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", MediaType.APPLICATION_JSON_VALUE);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        slowServer.setExecutor(serverExecutor);
+        slowServer.start();
+    }
+
+    @AfterEach
+    void stopSlowServer() {
+        slowServer.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void responseTimeoutBoundsCallsToSlowDownstream() {
+        String baseUrl = "http://127.0.0.1:" + slowServer.getAddress().getPort();
+
+        new ApplicationContextRunner()
+                .withUserConfiguration(RestClientConfig.class)
+                .withPropertyValues(
+                        "card.service.base-url=" + baseUrl,
+                        "order.service.base-url=" + baseUrl,
+                        "card.service.response-timeout=200ms")
+                .run(context -> {
+                    RestClient client = context.getBean("cardServiceRestClient", RestClient.class);
+                    PoolingHttpClientConnectionManager pool =
+                            context.getBean("cardServiceConnectionManager", PoolingHttpClientConnectionManager.class);
+
+                    long start = System.nanoTime();
+                    assertThatThrownBy(() -> client.post()
+                            .uri("/api/cards/validate")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body("{}")
+                            .retrieve()
+                            .body(String.class))
+                            .isInstanceOf(ResourceAccessException.class);
+
+                    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+                    assertThat(pool.getTotalStats().getLeased()).isZero();
+                });
+    }
+
+    @Test
+    void closingTheContextStopsTheClientsEvictorThreads() {
+        String baseUrl = "http://127.0.0.1:" + slowServer.getAddress().getPort();
+        long evictorsBefore = liveEvictorThreads();
+
+        new ApplicationContextRunner()
+                .withUserConfiguration(RestClientConfig.class)
+                .withPropertyValues(
+                        "card.service.base-url=" + baseUrl,
+                        "order.service.base-url=" + baseUrl)
+                .run(context -> {
+                    assertThat(context).hasBean("cardServiceHttpClient").hasBean("orderServiceHttpClient");
+                    assertThat(liveEvictorThreads()).isEqualTo(evictorsBefore + 2);
+                });
+
+        assertThat(liveEvictorThreads()).isEqualTo(evictorsBefore);
+    }
+
+    private static long liveEvictorThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().startsWith("idle-connection-evictor"))
+                .count();
+    }
+}
@@ -0,0 +1,32 @@
+package com.payment.Payment.config;
+
+import com.payment.Payment.util.TransactionIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionIdConfigTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(TransactionIdConfig.class);
+
+    @Test
+    void derivesANodeIdWhenNoneIsRequired() {
+        contextRunner.run(context -> assertThat(context.getBean(TransactionIdGenerator.class).getNodeId())
+                .isBetween(0, TransactionIdGenerator.MAX_NODE_ID));
+    }
+
+    @Test
+    void usesTheConfiguredNodeId() {
+        contextRunner.withPropertyValues("payment.node-id=42", "payment.node-id-required=true")
+                .run(context -> assertThat(context.getBean(TransactionIdGenerator.class).getNodeId()).isEqualTo(42));
+    }
+
+    @Test
+    void failsStartupWhenARequiredNodeIdIsMissing() {
+        contextRunner.withPropertyValues("payment.node-id-required=true")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().rootCause().hasMessageContaining("payment.node-id must be set"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.payment.Payment.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentStatusTests {
+
+    @Test
+    void followsThePaymentLifecycle() {
+        assertThat(PaymentStatus.PENDING.canTransitionTo(PaymentStatus.PROCESSING)).isTrue();
+        assertThat(PaymentStatus.PROCESSING.canTransitionTo(PaymentStatus.COMPLETED)).isTrue();
+        assertThat(PaymentStatus.COMPLETED.canTransitionTo(PaymentStatus.PARTIALLY_REFUNDED)).isTrue();
+        assertThat(PaymentStatus.PARTIALLY_REFUNDED.canTransitionTo(PaymentStatus.REFUNDED)).isTrue();
+        assertThat(PaymentStatus.PENDING.canTransitionTo(PaymentStatus.FAILED)).isTrue();
+        assertThat(PaymentStatus.PROCESSING.canTransitionTo(PaymentStatus.FAILED)).isTrue();
+    }
+
+    @Test
+    void rejectsSkippedAndBackwardTransitions() {
+        assertThat(PaymentStatus.PENDING.canTransitionTo(PaymentStatus.COMPLETED)).isFalse();
+        assertThat(PaymentStatus.COMPLETED.canTransitionTo(PaymentStatus.FAILED)).isFalse();
+        assertThat(PaymentStatus.REFUNDED.canTransitionTo(PaymentStatus.COMPLETED)).isFalse();
+        assertThat(PaymentStatus.PARTIALLY_REFUNDED.canTransitionTo(PaymentStatus.COMPLETED)).isFalse();
+    }
+
+    @Test
+    void finalStatusesHaveNoWayOut() {
+        for (PaymentStatus next : PaymentStatus.values()) {
+            assertThat(PaymentStatus.FAILED.canTransitionTo(next)).isFalse();
+            assertThat(PaymentStatus.REFUNDED.canTransitionTo(next)).isFalse();
+        }
+    }
+}
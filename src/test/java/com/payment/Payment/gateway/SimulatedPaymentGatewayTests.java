@@ -0,0 +1,91 @@
+package com.payment.Payment.gateway;
+
+import com.payment.Payment.exception.PaymentGatewayException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SimulatedPaymentGatewayTests {
+
+    @Test
+    void keepsThousandsOfChargesInFlightOnOneThread() throws Exception {
+        LatencyDistribution latency = new LatencyDistribution(Duration.ofMillis(200), Duration.ZERO);
+        try (SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(latency, 0, 0, 1)) {
+            long started = System.nanoTime();
+            List<CompletableFuture<GatewayResult>> charges = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                charges.add(gateway.charge(request("TXN-" + i)));
+            }
+            CompletableFuture.allOf(charges.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+            // Authorize and capture each take 200 ms; run one at a time this would take minutes
+            assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+            assertThat(charges).allSatisfy(charge -> {
+                assertThat(charge.join().isApproved()).isTrue();
+                assertThat(charge.join().getReference()).startsWith("CAP-TXN-");
+            });
+        }
+    }
+
+    @Test
+    void declinedAuthorizationsAreNotCaptured() {
+        LatencyDistribution latency = new LatencyDistribution(Duration.ZERO, Duration.ZERO);
+        try (SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(latency, 1, 0, 1)) {
+            GatewayResult result = gateway.charge(request("TXN-1")).join();
+
+            assertThat(result.isApproved()).isFalse();
+            assertThat(result.getReference()).isNull();
+            assertThat(result.getDeclineReason()).isEqualTo("Declined by issuer");
+        }
+    }
+
+    @Test
+    void findsCapturedChargesOnly() {
+        LatencyDistribution latency = new LatencyDistribution(Duration.ZERO, Duration.ZERO);
+        try (SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(latency, 0, 0, 1)) {
+            gateway.charge(request("TXN-1")).join();
+
+            assertThat(gateway.findCharge("TXN-1").join().getReference()).isEqualTo("CAP-TXN-1");
+            assertThat(gateway.findCharge("TXN-2").join().isApproved()).isFalse();
+        }
+    }
+
+    @Test
+    void refundsAreCarriedOutOncePerRefundId() {
+        LatencyDistribution latency = new LatencyDistribution(Duration.ZERO, Duration.ZERO);
+        try (SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(latency, 0, 0, 1)) {
+            String reference = gateway.refund("TXN-1", "7", BigDecimal.TEN, "USD").join().getReference();
+
+            assertThat(gateway.refund("TXN-1", "7", BigDecimal.TEN, "USD").join().getReference()).isEqualTo(reference);
+            assertThat(gateway.findRefund("7").join().getReference()).isEqualTo(reference);
+            assertThat(gateway.findRefund("8").join().isApproved()).isFalse();
+        }
+    }
+
+    @Test
+    void gatewayErrorsCompleteExceptionally() {
+        LatencyDistribution latency = new LatencyDistribution(Duration.ZERO, Duration.ZERO);
+        try (SimulatedPaymentGateway gateway = new SimulatedPaymentGateway(latency, 0, 1, 1)) {
+            assertThatThrownBy(() -> gateway.refund("TXN-1", "1", BigDecimal.TEN, "USD").join())
+                    .hasCauseInstanceOf(PaymentGatewayException.class);
+        }
+    }
+
+    private static AuthorizationRequest request(String transactionId) {
+        return AuthorizationRequest.builder()
+                .transactionId(transactionId)
+                .orderId(1L)
+                .amount(new BigDecimal("49.99"))
+                .currency("USD")
+                .cardToken("tok_test")
+                .build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.payment.Payment.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedCountTests {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger counts = new AtomicInteger();
+    private final CachedCount cached = new CachedCount(counts::incrementAndGet, Duration.ofSeconds(15), clock::get);
+
+    @Test
+    void countsOncePerMaxAge() {
+        assertThat(cached.get()).isEqualTo(1);
+        clock.addAndGet(Duration.ofSeconds(14).toNanos());
+        assertThat(cached.get()).isEqualTo(1);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(cached.get()).isEqualTo(2);
+        assertThat(counts).hasValue(2);
+    }
+}
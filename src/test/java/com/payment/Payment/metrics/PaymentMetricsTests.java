@@ -0,0 +1,59 @@
+package com.payment.Payment.metrics;
+
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.metrics.PaymentMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PaymentMetrics metrics = new PaymentMetrics(registry);
+
+    @Test
+    void timesStagesThatReturnAndThatThrow() {
+        assertThat(metrics.time(Stage.GATEWAY, () -> "ok")).isEqualTo("ok");
+        assertThatThrownBy(() -> metrics.time(Stage.GATEWAY, () -> {
+            throw new IllegalStateException("declined");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("payment.stage").tag("stage", "gateway").timer().count()).isEqualTo(2);
+        assertThat(registry.get("payment.stage").tag("stage", "db_insert").timer().count()).isZero();
+    }
+
+    @Test
+    void timesAsyncStagesThatFailBeforeReturningAFuture() {
+        assertThat(metrics.timeAsync(Stage.GATEWAY, () -> CompletableFuture.completedFuture("ok")).join())
+                .isEqualTo("ok");
+        assertThatThrownBy(() -> metrics.timeAsync(Stage.GATEWAY, () -> {
+            throw new IllegalStateException("rejected");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("payment.stage").tag("stage", "gateway").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void countsTransitionsImmediatelyOutsideTransactions() {
+        metrics.recordTransition(null, PaymentStatus.PROCESSING);
+        metrics.recordTransition(PaymentStatus.PROCESSING, PaymentStatus.COMPLETED);
+        metrics.recordTransition(PaymentStatus.PROCESSING, PaymentStatus.COMPLETED);
+
+        assertThat(registry.get("payment.status.transitions").tags("from", "NONE", "to", "PROCESSING")
+                .counter().count()).isEqualTo(1);
+        assertThat(registry.get("payment.status.transitions").tags("from", "PROCESSING", "to", "COMPLETED")
+                .counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void countsExceptionsByType() {
+        metrics.recordException(new IllegalArgumentException());
+
+        assertThat(registry.get("payment.api.exceptions").tag("exception", "IllegalArgumentException")
+                .counter().count()).isEqualTo(1);
+    }
+}
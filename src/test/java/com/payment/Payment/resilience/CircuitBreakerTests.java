@@ -0,0 +1,143 @@
+package com.payment.Payment.resilience;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTests {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(
+            "Card", 50f, 10, 4, TimeUnit.SECONDS.toNanos(10), 2, clock::get);
+
+    @Test
+    void staysClosedUntilMinimumCallsAreRecorded() {
+        recordFailure();
+        recordFailure();
+        recordFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        recordSuccess();
+        recordSuccess();
+        recordFailure();
+        recordFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.NOT_PERMITTED);
+    }
+
+    @Test
+    void halfOpenProbesCloseTheBreakerWhenTheyAllSucceed() {
+        tripOpen();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        long first = circuitBreaker.tryAcquirePermission();
+        long second = circuitBreaker.tryAcquirePermission();
+        assertThat(first).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+        assertThat(second).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.NOT_PERMITTED);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onSuccess(first);
+        circuitBreaker.onSuccess(second);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.failureRate()).isZero();
+    }
+
+    @Test
+    void failedHalfOpenProbeReopensTheBreaker() {
+        tripOpen();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+        long probe = circuitBreaker.tryAcquirePermission();
+        assertThat(probe).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+        circuitBreaker.onFailure(probe);
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isEqualTo(CircuitBreaker.NOT_PERMITTED);
+    }
+
+    @Test
+    void outcomesOfCallsAdmittedBeforeAStateChangeAreIgnored() {
+        long slowCall = circuitBreaker.tryAcquirePermission();
+        tripOpen();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        long probe = circuitBreaker.tryAcquirePermission();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // Succeeds long after the breaker opened; must not count as a half-open probe
+        circuitBreaker.onSuccess(slowCall);
+        circuitBreaker.onSuccess(slowCall);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        circuitBreaker.onFailure(probe);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // Nor may a late failure from the closed breaker count against it after it reopens
+        circuitBreaker.onFailure(slowCall);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertThat(circuitBreaker.tryAcquirePermission()).isNotEqualTo(CircuitBreaker.NOT_PERMITTED);
+    }
+
+    @Test
+    void slidingWindowForgetsOldestOutcomes() {
+        for (int i = 0; i < 4; i++) {
+            recordSuccess();
+        }
+        recordFailure();
+        for (int i = 0; i < 10; i++) {
+            recordSuccess();
+        }
+
+        assertThat(circuitBreaker.failureRate()).isZero();
+    }
+
+    @Test
+    void interruptedCallsThroughTheGuardAreNotCountedAsFailures() {
+        DownstreamGuard guard = new DownstreamGuard("Card", circuitBreaker, new Bulkhead(4, 0));
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.execute(() -> {
+                throw new ResourceAccessException("I/O error", new InterruptedIOException());
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.failureRate()).isZero();
+
+        // A read timeout is an InterruptedIOException as well, but a real failure
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> guard.execute(() -> {
+                throw new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out"));
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void recordSuccess() {
+        circuitBreaker.onSuccess(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void recordFailure() {
+        circuitBreaker.onFailure(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            recordFailure();
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+}
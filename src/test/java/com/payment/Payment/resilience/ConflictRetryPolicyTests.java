@@ -0,0 +1,57 @@
+package com.payment.Payment.resilience;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConflictRetryPolicyTests {
+
+    private final ConflictRetryPolicy policy = new ConflictRetryPolicy(
+            3, TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(1));
+
+    @Test
+    void retriesConflictsUntilAnAttemptSucceeds() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy.execute(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("version changed");
+            }
+            return "written";
+        });
+
+        assertThat(result).isEqualTo("written");
+        assertThat(attempts).hasValue(3);
+        assertThat(policy.getRetries()).isEqualTo(2);
+    }
+
+    @Test
+    void rethrowsTheConflictOnceAttemptsAreUsedUp() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> policy.execute(() -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("version changed");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> policy.execute(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("insufficient balance");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(policy.getRetries()).isZero();
+    }
+}
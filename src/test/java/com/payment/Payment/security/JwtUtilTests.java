@@ -0,0 +1,94 @@
+package com.payment.Payment.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilTests {
+
+    private static final String SECRET = "YourSuperSecretKeyForJWTTokenValidationMustBeAtLeast256BitsLong";
+    private static final String OTHER_SECRET = "AnotherSecretKeyThatTheAuthServiceNeverUsedForSigningTokensAtAll";
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxTtl", Duration.ofMinutes(5));
+        jwtUtil.init();
+    }
+
+    @Test
+    void servesARepeatedTokenFromTheCache() {
+        String token = mint(SECRET, "alice", Duration.ofHours(1));
+
+        JwtPrincipal first = jwtUtil.authenticate(token).orElseThrow();
+        JwtPrincipal second = jwtUtil.authenticate(token).orElseThrow();
+
+        assertThat(first.getUsername()).isEqualTo("alice");
+        assertThat(first.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void cachesNoLongerThanTheTokenIsValid() throws Exception {
+        String shortLived = mint(SECRET, "alice", Duration.ofSeconds(30));
+        String longLived = mint(SECRET, "bob", Duration.ofHours(1));
+        jwtUtil.authenticate(shortLived).orElseThrow();
+        jwtUtil.authenticate(longLived).orElseThrow();
+
+        assertThat(expiresAfter(shortLived)).isLessThanOrEqualTo(Duration.ofSeconds(30));
+        assertThat(expiresAfter(longLived)).isLessThanOrEqualTo(Duration.ofMinutes(5))
+                .isGreaterThan(Duration.ofMinutes(4));
+    }
+
+    @Test
+    void rejectsTamperedTokensForACachedSubject() {
+        String token = mint(SECRET, "alice", Duration.ofHours(1));
+        assertThat(jwtUtil.authenticate(token)).isPresent();
+
+        String forged = mint(OTHER_SECRET, "alice", Duration.ofHours(1));
+        String[] parts = token.split("\\.");
+        String resigned = parts[0] + "." + parts[1] + "." + forged.split("\\.")[2];
+        char last = parts[2].charAt(0);
+        String flipped = parts[0] + "." + parts[1] + "." + (last == 'A' ? 'B' : 'A') + parts[2].substring(1);
+
+        assertThat(jwtUtil.authenticate(forged)).isEmpty();
+        assertThat(jwtUtil.authenticate(resigned)).isEmpty();
+        assertThat(jwtUtil.authenticate(flipped)).isEmpty();
+        assertThat(jwtUtil.authenticate(token)).isPresent();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Duration expiresAfter(String token) throws Exception {
+        Cache<String, JwtPrincipal> cache =
+                (Cache<String, JwtPrincipal>) ReflectionTestUtils.getField(jwtUtil, "principalCache");
+        String key = Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        return cache.policy().expireVariably().orElseThrow().getExpiresAfter(key).orElseThrow();
+    }
+
+    private static String mint(String secret, String username, Duration validFor) {
+        return Jwts.builder()
+                .subject(username)
+                .claim("roles", List.of("USER"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + validFor.toMillis()))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret)))
+                .compact();
+    }
+}
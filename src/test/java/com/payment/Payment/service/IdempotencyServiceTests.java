@@ -0,0 +1,173 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.exception.IdempotencyKeyException;
+import com.payment.Payment.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.payment.Payment.service.StubServices.USER;
+import static com.payment.Payment.service.StubServices.VALID_CARD;
+import static com.payment.Payment.service.StubServices.paymentRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTests {
+
+    private static final String KEY = "key-1";
+
+    @TempDir
+    Path dataDir;
+
+    private StubServices stubs;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void startStubs() throws Exception {
+        stubs = new StubServices();
+    }
+
+    @AfterEach
+    void stopStubs() {
+        executor.shutdownNow();
+        stubs.close();
+    }
+
+    @Test
+    void concurrentDuplicatesShareOneExecution() throws Exception {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            IdempotencyService idempotency = context.getBean(IdempotencyService.class);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            Future<PaymentResponse> first = executor.submit(() -> execute(idempotency, () -> {
+                started.countDown();
+                await(release);
+                return completed(1L);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<PaymentResponse> duplicate = executor.submit(() -> execute(idempotency, () -> completed(2L)));
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+            assertThat(duplicate.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+            assertThat(executions).hasValue(1);
+        }
+    }
+
+    @Test
+    void replaysTheStoredResponseAfterARestart() {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            execute(context.getBean(IdempotencyService.class), () -> completed(1L));
+        }
+
+        try (ConfigurableApplicationContext context = startApplication()) {
+            PaymentResponse replayed = execute(context.getBean(IdempotencyService.class), () -> completed(2L));
+
+            assertThat(replayed.getId()).isEqualTo(1L);
+            assertThat(replayed.getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(executions).hasValue(1);
+            // The replayed body reads exactly like the original response
+            JsonMapper jsonMapper = context.getBean(JsonMapper.class);
+            assertThat(jsonMapper.writeValueAsString(replayed)).isEqualTo(jsonMapper.writeValueAsString(completed(1L)));
+        }
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            IdempotencyService idempotency = context.getBean(IdempotencyService.class);
+            execute(idempotency, () -> completed(1L));
+
+            assertThatThrownBy(() -> idempotency.execute(USER, "payment", KEY,
+                    paymentRequest(2L, VALID_CARD), () -> completed(2L)))
+                    .isInstanceOf(IdempotencyKeyException.class)
+                    .hasMessage("Idempotency-Key was already used with a different request");
+        }
+    }
+
+    @Test
+    void aDuplicateStopsWaitingAfterTheTimeout() throws Exception {
+        try (ConfigurableApplicationContext context = startApplication("payment.idempotency.wait-timeout=200ms")) {
+            IdempotencyService idempotency = context.getBean(IdempotencyService.class);
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            Future<PaymentResponse> first = executor.submit(() -> execute(idempotency, () -> {
+                started.countDown();
+                await(release);
+                return completed(1L);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> execute(idempotency, () -> completed(2L)))
+                    .isInstanceOf(IdempotencyKeyException.class)
+                    .hasMessage("A request with this Idempotency-Key is still in progress");
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void expiredResponsesAreNotReplayedAndArePurged() {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            IdempotencyService idempotency = context.getBean(IdempotencyService.class);
+            IdempotencyRecordRepository records = context.getBean(IdempotencyRecordRepository.class);
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            execute(idempotency, () -> completed(1L));
+            jdbcTemplate.update("UPDATE idempotency_keys SET created_at = ?", LocalDateTime.now().minusDays(2));
+            assertThat(execute(idempotency, () -> completed(2L)).getId()).isEqualTo(2L);
+            assertThat(executions).hasValue(2);
+
+            jdbcTemplate.update("UPDATE idempotency_keys SET created_at = ?", LocalDateTime.now().minusDays(2));
+            idempotency.purgeExpired();
+            assertThat(records.count()).isZero();
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(String... properties) {
+        return stubs.startApplication("jdbc:h2:file:" + dataDir.resolve("idempotency"), properties);
+    }
+
+    private PaymentResponse execute(IdempotencyService idempotency, Supplier<PaymentResponse> action) {
+        return idempotency.execute(USER, "payment", KEY, paymentRequest(1L, VALID_CARD), () -> {
+            executions.incrementAndGet();
+            return action.get();
+        });
+    }
+
+    private static PaymentResponse completed(Long id) {
+        return PaymentResponse.builder()
+                .id(id)
+                .orderId(1L)
+                .status(PaymentStatus.COMPLETED)
+                .createdAt(LocalDateTime.of(2026, 1, 1, 12, 0))
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.entity.OrderStatusEvent;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.repository.OrderStatusEventRepository;
+import com.payment.Payment.security.JwtUtil;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the application twice against the same database file and a stub Order
+ * service: updates that could not be delivered before the restart are delivered
+ * after it.
+ */
+class OrderStatusRelayTests {
+
+    private static final long ORDER_ID = 4242L;
+
+    @TempDir
+    Path dataDir;
+
+    private HttpServer orderService;
+    private final AtomicInteger responseStatus = new AtomicInteger(503);
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startOrderService() throws IOException {
+        orderService = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        orderService.createContext("/api/orders/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            int status = responseStatus.get();
+            received.add(status + " " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath()
+                    + " " + exchange.getRequestHeaders().getFirst("Authorization") + " " + body);
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        orderService.start();
+    }
+
+    @AfterEach
+    void stopOrderService() {
+        orderService.stop(0);
+    }
+
+    @Test
+    void deliversQueuedStatusUpdatesAfterRestart() throws Exception {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            PaymentPersistenceService persistence = context.getBean(PaymentPersistenceService.class);
+            Payment payment = persistence.createProcessingPayment("user-1", paymentRequest(), cardValidation(), "TXN-RELAY1");
+            persistence.markCompleted(payment);
+
+            awaitTrue(() -> !received.isEmpty());
+            assertThat(context.getBean(OrderStatusEventRepository.class).count()).isEqualTo(1);
+        }
+
+        responseStatus.set(204);
+        received.clear();
+
+        try (ConfigurableApplicationContext context = startApplication()) {
+            OrderStatusEventRepository events = context.getBean(OrderStatusEventRepository.class);
+            awaitTrue(() -> events.count() == 0);
+
+            assertThat(received).hasSize(1);
+            String[] delivery = received.get(0).split(" ", 6);
+            assertThat(delivery[0] + " " + delivery[1] + " " + delivery[2])
+                    .isEqualTo("204 PUT /api/orders/" + ORDER_ID + "/status");
+            // Delivered with the service's own token, not the one of the paying user
+            assertThat(delivery[3]).isEqualTo("Bearer");
+            assertThat(context.getBean(JwtUtil.class).getUsernameFromToken(delivery[4])).isEqualTo("payment-service");
+            assertThat(delivery[5]).contains("\"status\":\"PROCESSING\"");
+        }
+    }
+
+    @Test
+    void aClaimedEventIsNotHandedToAnotherRelayUntilItsLeaseRunsOut() throws Exception {
+        try (ConfigurableApplicationContext context = startApplication("order.outbox.poll-interval-ms=3600000")) {
+            PaymentPersistenceService persistence = context.getBean(PaymentPersistenceService.class);
+            OrderStatusOutbox outbox = context.getBean(OrderStatusOutbox.class);
+            Payment payment = persistence.createProcessingPayment("user-1", paymentRequest(), cardValidation(), "TXN-RELAY2");
+            persistence.markCompleted(payment);
+
+            assertThat(outbox.claimDeliverable(10, Duration.ofMillis(300))).hasSize(1);
+            assertThat(outbox.claimDeliverable(10, Duration.ofMillis(300))).isEmpty();
+
+            Thread.sleep(400);
+            assertThat(outbox.claimDeliverable(10, Duration.ofMinutes(1)))
+                    .extracting(OrderStatusEvent::getOrderId)
+                    .containsExactly(ORDER_ID);
+        }
+    }
+
+    @Test
+    void aParkedEventNoLongerHoldsBackLaterUpdatesOfItsOrder() {
+        try (ConfigurableApplicationContext context = startApplication("order.outbox.poll-interval-ms=3600000")) {
+            OrderStatusEventRepository events = context.getBean(OrderStatusEventRepository.class);
+            OrderStatusEvent parked = events.save(event("PROCESSING"));
+            OrderStatusEvent later = events.save(event("PAID"));
+            OrderStatusOutbox outbox = context.getBean(OrderStatusOutbox.class);
+
+            // Still pending, so the later update waits for it
+            assertThat(outbox.claimDeliverable(10, Duration.ofMinutes(1)))
+                    .extracting(OrderStatusEvent::getId).containsExactly(parked.getId());
+
+            parked.setNextAttemptAt(null);
+            parked.setClaimedBy(null);
+            events.save(parked);
+
+            assertThat(outbox.claimDeliverable(10, Duration.ofMinutes(1)))
+                    .extracting(OrderStatusEvent::getId).containsExactly(later.getId());
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.devtools.restart.enabled=false",
+                "spring.datasource.url=jdbc:h2:file:" + dataDir.resolve("paymentdb"),
+                "spring.jpa.show-sql=false",
+                "order.service.base-url=http://127.0.0.1:" + orderService.getAddress().getPort(),
+                "order.outbox.poll-interval-ms=50",
+                "order.outbox.initial-backoff=50ms",
+                "order.outbox.max-backoff=200ms"));
+        all.addAll(List.of(properties));
+        // Passed as command line arguments, since builder properties are only defaults
+        // that application.properties overrides. A repeated argument would be joined
+        // into a list, so later entries replace earlier ones here
+        Map<String, String> arguments = new LinkedHashMap<>();
+        for (String property : all) {
+            arguments.put(property.substring(0, property.indexOf('=')), "--" + property);
+        }
+        return new SpringApplicationBuilder(PaymentApplication.class)
+                .run(arguments.values().toArray(String[]::new));
+    }
+
+    private OrderStatusEvent event(String orderStatus) {
+        return OrderStatusEvent.builder()
+                .paymentId(1L)
+                .orderId(ORDER_ID)
+                .orderStatus(orderStatus)
+                .build();
+    }
+
+    private PaymentRequest paymentRequest() {
+        return PaymentRequest.builder()
+                .orderId(ORDER_ID)
+                .amount(new BigDecimal("25.00"))
+                .currency("USD")
+                .build();
+    }
+
+    private CardValidationResponse cardValidation() {
+        return CardValidationResponse.builder()
+                .valid(true)
+                .cardType("VISA")
+                .cardLastFour("4242")
+                .build();
+    }
+
+    private void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(25);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,146 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.payment.Payment.dto.response.BatchPaymentItemResult;
+import com.payment.Payment.dto.response.BatchPaymentResponse;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.repository.PaymentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.payment.Payment.service.StubServices.DECLINED_CARD;
+import static com.payment.Payment.service.StubServices.TOKEN;
+import static com.payment.Payment.service.StubServices.USER;
+import static com.payment.Payment.service.StubServices.VALID_CARD;
+import static com.payment.Payment.service.StubServices.paymentRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentBatchTests {
+
+    private StubServices stubs;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private PaymentRepository paymentRepository;
+
+    @BeforeEach
+    void startApplication() throws Exception {
+        stubs = new StubServices();
+        // Gateway calls slow enough to settle a payment while its charge is in flight
+        context = stubs.startApplication("jdbc:h2:mem:batch-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "payment.gateway.simulator.median-latency=150ms",
+                "payment.gateway.simulator.p99-latency=150ms");
+        paymentService = context.getBean(PaymentService.class);
+        paymentRepository = context.getBean(PaymentRepository.class);
+    }
+
+    @AfterEach
+    void stopApplication() {
+        context.close();
+        stubs.close();
+    }
+
+    @Test
+    void reportsTheOutcomeOfEachItemOfAMixedBatch() {
+        stubs.missingOrders().add(9003L);
+        paymentService.processPayment(USER, TOKEN, paymentRequest(9000L, VALID_CARD));
+        PaymentRequest missingAmount = paymentRequest(9004L, VALID_CARD);
+        missingAmount.setAmount(null);
+
+        BatchPaymentResponse response = paymentService.processPayments(USER, TOKEN, List.of(
+                paymentRequest(9001L, VALID_CARD),
+                paymentRequest(9002L, DECLINED_CARD),
+                paymentRequest(9001L, VALID_CARD),
+                paymentRequest(9003L, VALID_CARD),
+                missingAmount,
+                paymentRequest(9000L, VALID_CARD),
+                paymentRequest(9005L, VALID_CARD)));
+
+        assertThat(response.getTotal()).isEqualTo(7);
+        assertThat(response.getSucceeded()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(5);
+        List<BatchPaymentItemResult> results = response.getResults();
+        assertThat(results).extracting(BatchPaymentItemResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5, 6);
+        assertThat(results).extracting(BatchPaymentItemResult::isSuccess)
+                .containsExactly(true, false, false, false, false, false, true);
+        assertThat(results.get(0).getPayment().getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(results.get(1).getError()).isEqualTo("Card validation failed: Card declined");
+        assertThat(results.get(2).getError()).isEqualTo("Duplicate order in batch");
+        assertThat(results.get(3).getError()).isEqualTo("Order not found with id: 9003");
+        assertThat(results.get(4).getError()).isEqualTo("amount: Amount is required");
+        assertThat(results.get(5).getError()).isEqualTo("Payment already completed for this order");
+        assertThat(results.get(6).getOrderId()).isEqualTo(9005L);
+
+        assertThat(statusOf(9001L)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(statusOf(9005L)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(9002L)).isEmpty();
+        assertThat(paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(9003L)).isEmpty();
+        assertThat(paymentRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void anOrderHeldByAnotherPaymentFailsOnlyItsOwnItem() {
+        PaymentPersistenceService persistence = context.getBean(PaymentPersistenceService.class);
+        persistence.createProcessingPayment(USER, paymentRequest(9101L, VALID_CARD),
+                CardValidationResponse.builder().valid(true).cardLastFour("4242").cardType("VISA").build(),
+                "TXN-HELD");
+
+        BatchPaymentResponse response = paymentService.processPayments(USER, TOKEN, List.of(
+                paymentRequest(9100L, VALID_CARD),
+                paymentRequest(9101L, VALID_CARD),
+                paymentRequest(9102L, VALID_CARD)));
+
+        assertThat(response.getResults()).extracting(BatchPaymentItemResult::isSuccess)
+                .containsExactly(true, false, true);
+        assertThat(response.getResults().get(1).getError())
+                .isEqualTo("Another payment for this order is already in progress");
+        assertThat(statusOf(9100L)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(statusOf(9102L)).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(9101L).orElseThrow().getTransactionId())
+                .isEqualTo("TXN-HELD");
+        assertThat(paymentRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void aPaymentSettledConcurrentlyFailsOnlyItsOwnItem() throws Exception {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<BatchPaymentResponse> batch = executor.submit(() -> paymentService.processPayments(USER, TOKEN,
+                    List.of(paymentRequest(9200L, VALID_CARD), paymentRequest(9201L, VALID_CARD))));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments WHERE order_id = 9201", Integer.class) == 0
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            // What the recovery sweep does to a payment it finds abandoned
+            jdbcTemplate.update("UPDATE payments SET status = 'FAILED', active_order_id = NULL,"
+                    + " version = version + 1 WHERE order_id = 9201");
+
+            BatchPaymentResponse response = batch.get(10, TimeUnit.SECONDS);
+            assertThat(response.getResults()).extracting(BatchPaymentItemResult::isSuccess)
+                    .containsExactly(true, false);
+            assertThat(response.getResults().get(1).getError())
+                    .isEqualTo("Payment outcome is being confirmed with the gateway");
+            assertThat(statusOf(9200L)).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(statusOf(9201L)).isEqualTo(PaymentStatus.FAILED);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PaymentStatus statusOf(Long orderId) {
+        return paymentRepository.findFirstByOrderIdOrderByCreatedAtDesc(orderId).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,116 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.controller.PaymentController;
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.dto.response.PaymentPageResponse;
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.exception.InvalidCursorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.payment.Payment.service.StubServices.USER;
+import static com.payment.Payment.service.StubServices.VALID_CARD;
+import static com.payment.Payment.service.StubServices.paymentRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentListingTests {
+
+    private StubServices stubs;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private final List<Long> newestFirst = new ArrayList<>();
+
+    @BeforeEach
+    void startApplication() throws Exception {
+        stubs = new StubServices();
+        context = stubs.startApplication("jdbc:h2:mem:listing-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        paymentService = context.getBean(PaymentService.class);
+
+        PaymentPersistenceService persistence = context.getBean(PaymentPersistenceService.class);
+        CardValidationResponse card = CardValidationResponse.builder()
+                .valid(true).cardType("VISA").cardLastFour("4242").build();
+        for (long orderId = 1; orderId <= 5; orderId++) {
+            newestFirst.add(0, persistence.createProcessingPayment(USER, paymentRequest(orderId, VALID_CARD), card,
+                    "TXN-LIST" + orderId).getId());
+        }
+        persistence.createProcessingPayment("user-2", paymentRequest(6L, VALID_CARD), card, "TXN-OTHER");
+        // Same timestamp everywhere, so only the id tie-breaker orders the pages
+        context.getBean(JdbcTemplate.class).update("UPDATE payments SET created_at = ?",
+                LocalDateTime.of(2026, 1, 1, 12, 0));
+    }
+
+    @AfterEach
+    void stopApplication() {
+        context.close();
+        stubs.close();
+    }
+
+    @Test
+    void pagesThroughPaymentsWithEqualTimestampsWithoutGapsOrRepeats() {
+        List<Long> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            PaymentPageResponse page = paymentService.getUserPaymentsPage(USER, cursor, 2);
+            page.getItems().forEach(payment -> seen.add(payment.getId()));
+            pageSizes.add(page.getItems().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(pageSizes).containsExactly(2, 2, 1);
+        assertThat(seen).containsExactlyElementsOf(newestFirst);
+    }
+
+    @Test
+    void aFullLastPageIsFollowedByAnEmptyOne() {
+        PaymentPageResponse first = paymentService.getUserPaymentsPage(USER, null, 5);
+        PaymentPageResponse second = paymentService.getUserPaymentsPage(USER, first.getNextCursor(), 5);
+
+        assertThat(first.getItems()).hasSize(5);
+        assertThat(second.getItems()).isEmpty();
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void rejectsAMalformedCursor() {
+        assertThatThrownBy(() -> paymentService.getUserPaymentsPage(USER, "%%%", 2))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void streamsOnePaymentPerLineInTheApplicationsJsonFormat() throws Exception {
+        StreamingResponseBody body = context.getBean(PaymentController.class)
+                .streamUserPayments(new UsernamePasswordAuthenticationToken(USER, "token-1"))
+                .getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        JsonMapper jsonMapper = context.getBean(JsonMapper.class);
+        List<Long> streamed = new ArrayList<>();
+        for (String line : lines) {
+            JsonNode payment = jsonMapper.readTree(line);
+            streamed.add(payment.get("id").asLong());
+            assertThat(LocalDateTime.parse(payment.get("createdAt").asString()))
+                    .isEqualTo(LocalDateTime.of(2026, 1, 1, 12, 0));
+        }
+        assertThat(streamed).containsExactlyElementsOf(newestFirst);
+        PaymentResponse parsed = jsonMapper.readValue(lines[0], PaymentResponse.class);
+        assertThat(parsed.getTransactionId()).isEqualTo("TXN-LIST5");
+    }
+}
@@ -0,0 +1,83 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.exception.PaymentQueueFullException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentSubmissionQueueTests {
+
+    private ThreadPoolTaskExecutor executor;
+    private PaymentSubmissionQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        queue = new PaymentSubmissionQueue(executor, 1, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void holdsSlotsUntilTheReturnedStageCompletes() throws Exception {
+        CompletableFuture<Void> gatewayResponse = new CompletableFuture<>();
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger started = new AtomicInteger();
+
+        queue.submit(admitted::incrementAndGet, ignored -> {
+            started.incrementAndGet();
+            return gatewayResponse;
+        });
+        queue.submit(admitted::incrementAndGet, ignored -> {
+            started.incrementAndGet();
+            return gatewayResponse;
+        });
+
+        // Both ran on the single worker; neither is finished, so no slot is free
+        waitFor(() -> started.get() == 2);
+        assertThatThrownBy(() -> queue.submit(admitted::incrementAndGet, ignored -> done()))
+                .isInstanceOf(PaymentQueueFullException.class);
+        assertThat(admitted).hasValue(2);
+
+        gatewayResponse.complete(null);
+        waitFor(() -> queue.getAvailableSlots() == 2);
+        assertThat(queue.submit(admitted::incrementAndGet, ignored -> done())).isEqualTo(3);
+    }
+
+    @Test
+    void freesTheSlotWhenAdmissionFails() {
+        assertThatThrownBy(() -> queue.submit(() -> {
+            throw new IllegalStateException("duplicate order");
+        }, ignored -> done())).isInstanceOf(IllegalStateException.class);
+
+        assertThat(queue.getAvailableSlots()).isEqualTo(queue.getCapacity());
+    }
+
+    private static CompletableFuture<Void> done() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,124 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.exception.PaymentProcessingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.payment.Payment.service.StubServices.TOKEN;
+import static com.payment.Payment.service.StubServices.USER;
+import static com.payment.Payment.service.StubServices.VALID_CARD;
+import static com.payment.Payment.service.StubServices.paymentRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProcessPaymentTests {
+
+    private static final long ORDER_ID = 7000L;
+
+    private StubServices stubs;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void startStubs() throws Exception {
+        stubs = new StubServices();
+    }
+
+    @AfterEach
+    void stopApplication() {
+        executor.shutdownNow();
+        if (context != null) {
+            context.close();
+        }
+        stubs.close();
+    }
+
+    @Test
+    void concurrentPaymentsForOneOrderLeaveExactlyOneActivePayment() throws Exception {
+        startApplication("payment.gateway.simulator.median-latency=50ms",
+                "payment.gateway.simulator.p99-latency=50ms");
+        stubs.setLatencyMillis(50);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PaymentResponse>> attempts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            attempts.add(executor.submit(() -> {
+                start.await();
+                return paymentService.processPayment(USER, TOKEN, paymentRequest(ORDER_ID, VALID_CARD));
+            }));
+        }
+        start.countDown();
+
+        int completed = 0;
+        for (Future<PaymentResponse> attempt : attempts) {
+            try {
+                assertThat(attempt.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+                completed++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(PaymentProcessingException.class);
+                assertThat(e.getCause().getMessage()).isIn(
+                        "Another payment for this order is already in progress",
+                        "Payment already completed for this order");
+            }
+        }
+
+        assertThat(completed).isEqualTo(1);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments WHERE active_order_id = ?", Integer.class, ORDER_ID)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments WHERE order_id = ?", Integer.class, ORDER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void aFailedGatewayCallLeavesThePaymentProcessingAndItsOrderHeld() {
+        startApplication("payment.gateway.simulator.error-rate=1");
+
+        assertThatThrownBy(() -> paymentService.processPayment(USER, TOKEN, paymentRequest(ORDER_ID, VALID_CARD)))
+                .isInstanceOf(PaymentProcessingException.class)
+                .hasMessage("Payment outcome is being confirmed with the gateway");
+
+        // The customer may have been charged, so the order must not be paid again yet
+        assertThat(context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT status FROM payments WHERE active_order_id = ?", String.class, ORDER_ID))
+                .isEqualTo(PaymentStatus.PROCESSING.name());
+        assertThatThrownBy(() -> paymentService.processPayment(USER, TOKEN, paymentRequest(ORDER_ID, VALID_CARD)))
+                .isInstanceOf(PaymentProcessingException.class)
+                .hasMessage("Another payment for this order is already in progress");
+    }
+
+    @Test
+    void aGatewayCallThatTimesOutLeavesThePaymentProcessing() {
+        startApplication("payment.gateway.simulator.median-latency=2s",
+                "payment.gateway.simulator.p99-latency=2s",
+                "payment.gateway.timeout=100ms");
+
+        assertThatThrownBy(() -> paymentService.processPayment(USER, TOKEN, paymentRequest(ORDER_ID, VALID_CARD)))
+                .isInstanceOf(PaymentProcessingException.class)
+                .hasMessage("Payment outcome is being confirmed with the gateway");
+
+        assertThat(context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT status FROM payments WHERE active_order_id = ?", String.class, ORDER_ID))
+                .isEqualTo(PaymentStatus.PROCESSING.name());
+    }
+
+    private void startApplication(String... properties) {
+        context = stubs.startApplication("jdbc:h2:mem:process-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", properties);
+        paymentService = context.getBean(PaymentService.class);
+    }
+}
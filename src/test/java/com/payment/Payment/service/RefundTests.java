@@ -0,0 +1,178 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.dto.request.RefundRequest;
+import com.payment.Payment.dto.response.PaymentResponse;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.entity.Refund;
+import com.payment.Payment.exception.RefundException;
+import com.payment.Payment.gateway.PaymentGateway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.payment.Payment.service.StubServices.TOKEN;
+import static com.payment.Payment.service.StubServices.USER;
+import static com.payment.Payment.service.StubServices.VALID_CARD;
+import static com.payment.Payment.service.StubServices.paymentRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefundTests {
+
+    private StubServices stubs;
+    private ConfigurableApplicationContext context;
+    private PaymentService paymentService;
+    private JdbcTemplate jdbcTemplate;
+    private Long paymentId;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void startApplication() throws Exception {
+        stubs = new StubServices();
+        context = stubs.startApplication("jdbc:h2:mem:refund-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "payment.conflict-retry.max-attempts=1000");
+        paymentService = context.getBean(PaymentService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        // Charges 25.00
+        paymentId = paymentService.processPayment(USER, TOKEN, paymentRequest(8000L, VALID_CARD)).getId();
+    }
+
+    @AfterEach
+    void stopApplication() {
+        executor.shutdownNow();
+        context.close();
+        stubs.close();
+    }
+
+    @Test
+    void partialRefundsAddUpToAFullRefund() {
+        PaymentResponse partial = refund("10.00");
+        assertThat(partial.getStatus()).isEqualTo(PaymentStatus.PARTIALLY_REFUNDED);
+        assertThat(partial.getRefundedAmount()).isEqualByComparingTo("10.00");
+
+        PaymentResponse full = refund("15.00");
+        assertThat(full.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(full.getRefundedAmount()).isEqualByComparingTo("25.00");
+        assertThat(completedRefunds()).isEqualTo(2);
+
+        assertThatThrownBy(() -> refund("1.00"))
+                .isInstanceOf(RefundException.class)
+                .hasMessage("Payment has already been refunded");
+    }
+
+    @Test
+    void aRefundWithoutAmountRefundsTheRemainingBalance() {
+        refund("5.00");
+
+        PaymentResponse full = refund(null);
+
+        assertThat(full.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+        assertThat(full.getRefundedAmount()).isEqualByComparingTo("25.00");
+    }
+
+    @Test
+    void refundsBeyondTheBalanceAreRejected() {
+        refund("20.00");
+
+        assertThatThrownBy(() -> refund("5.01"))
+                .isInstanceOf(RefundException.class)
+                .hasMessageContaining("exceeds the refundable balance of 5.00");
+        assertThat(refundedAmount()).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void concurrentRefundsNeverOverdrawThePayment() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PaymentResponse>> attempts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            attempts.add(executor.submit(() -> {
+                start.await();
+                return refund("5.00");
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        for (Future<PaymentResponse> attempt : attempts) {
+            try {
+                attempt.get(10, TimeUnit.SECONDS);
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(RefundException.class);
+            }
+        }
+
+        assertThat(succeeded).isEqualTo(5);
+        assertThat(refundedAmount()).isEqualByComparingTo("25.00");
+        assertThat(completedRefunds()).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?", String.class, paymentId))
+                .isEqualTo(PaymentStatus.REFUNDED.name());
+    }
+
+    @Test
+    void reservingARefundEvictsTheCachedPayment() {
+        assertThat(paymentService.getPaymentById(paymentId, USER).getRefundedAmount()).isEqualByComparingTo("0.00");
+
+        context.getBean(PaymentPersistenceService.class).reserveRefund(paymentId, USER, new BigDecimal("10.00"), null);
+
+        assertThat(paymentService.getPaymentById(paymentId, USER).getRefundedAmount()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void abandonedRefundsAreSettledWithTheGateway() {
+        PaymentPersistenceService persistence = context.getBean(PaymentPersistenceService.class);
+        Refund carriedOut = persistence.reserveRefund(paymentId, USER, new BigDecimal("10.00"), null);
+        Refund notCarriedOut = persistence.reserveRefund(paymentId, USER, new BigDecimal("5.00"), null);
+        String transactionId = carriedOut.getPayment().getTransactionId();
+        context.getBean(PaymentGateway.class).refund(transactionId, String.valueOf(carriedOut.getId()),
+                carriedOut.getAmount(), "USD").join();
+
+        // Not stale yet, so left alone
+        context.getBean(UnfinishedPaymentRecovery.class).recoverStalePayments();
+        assertThat(refundedAmount()).isEqualByComparingTo("15.00");
+
+        jdbcTemplate.update("UPDATE refunds SET updated_at = ?", LocalDateTime.now().minusHours(1));
+        context.getBean(UnfinishedPaymentRecovery.class).recoverStalePayments();
+
+        assertThat(refundStatus(carriedOut.getId())).isEqualTo("COMPLETED");
+        assertThat(refundStatus(notCarriedOut.getId())).isEqualTo("FAILED");
+        assertThat(refundedAmount()).isEqualByComparingTo("10.00");
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM payments WHERE id = ?", String.class, paymentId))
+                .isEqualTo(PaymentStatus.PARTIALLY_REFUNDED.name());
+    }
+
+    private PaymentResponse refund(String amount) {
+        return paymentService.refundPayment(USER, RefundRequest.builder()
+                .paymentId(paymentId)
+                .amount(amount == null ? null : new BigDecimal(amount))
+                .build());
+    }
+
+    private BigDecimal refundedAmount() {
+        return jdbcTemplate.queryForObject("SELECT refunded_amount FROM payments WHERE id = ?",
+                BigDecimal.class, paymentId);
+    }
+
+    private int completedRefunds() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refunds WHERE payment_id = ? AND status = 'COMPLETED'",
+                Integer.class, paymentId);
+    }
+
+    private String refundStatus(Long refundId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM refunds WHERE id = ?", String.class, refundId);
+    }
+}
@@ -0,0 +1,163 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.PaymentApplication;
+import com.payment.Payment.dto.request.PaymentRequest;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Card and Order services for tests that run the whole payment flow, and a way
+ * to start the application against them. Every card is valid except
+ * {@link #DECLINED_CARD} and every order exists except the ones added to
+ * {@link #missingOrders()}. Calls to each service are counted.
+ */
+final class StubServices implements AutoCloseable {
+
+    static final String USER = "user-1";
+    static final String TOKEN = "token-1";
+    static final String VALID_CARD = "4242424242424242";
+    static final String DECLINED_CARD = "4000000000000002";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<Long> missingOrders = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger orderLookups = new AtomicInteger();
+    private final AtomicInteger cardValidations = new AtomicInteger();
+    private volatile long latencyMillis;
+
+    StubServices() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.createContext("/api/cards/validate", exchange -> {
+            cardValidations.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            delay();
+            respond(exchange, 200, body.contains(DECLINED_CARD)
+                    ? "{\"valid\":false,\"message\":\"Card declined\"}"
+                    : "{\"valid\":true,\"cardType\":\"VISA\",\"cardLastFour\":\"4242\",\"validationToken\":\"tok\"}");
+        });
+        server.createContext("/api/orders/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                respond(exchange, 204, null);
+                return;
+            }
+            orderLookups.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            long orderId = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+            delay();
+            if (missingOrders.contains(orderId)) {
+                respond(exchange, 404, "{\"message\":\"Order not found\"}");
+            } else {
+                respond(exchange, 200, "{\"id\":" + orderId + ",\"status\":\"PENDING\"}");
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    Set<Long> missingOrders() {
+        return missingOrders;
+    }
+
+    int orderLookups() {
+        return orderLookups.get();
+    }
+
+    int cardValidations() {
+        return cardValidations.get();
+    }
+
+    /**
+     * Delays every following Card and Order response by {@code millis}.
+     */
+    void setLatencyMillis(long millis) {
+        this.latencyMillis = millis;
+    }
+
+    /**
+     * Starts the application on {@code databaseUrl} with an instant gateway, the
+     * given extra properties winning over the defaults.
+     */
+    ConfigurableApplicationContext startApplication(String databaseUrl, String... properties) {
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        List<String> all = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.devtools.restart.enabled=false",
+                "spring.datasource.url=" + databaseUrl,
+                "spring.jpa.show-sql=false",
+                "card.service.base-url=" + baseUrl,
+                "order.service.base-url=" + baseUrl,
+                "payment.gateway.simulator.median-latency=0ms",
+                "order.outbox.poll-interval-ms=50"));
+        all.addAll(List.of(properties));
+        // Passed as command line arguments, since builder properties are only defaults
+        // that application.properties overrides. A repeated argument would be joined
+        // into a list, so later entries replace earlier ones here
+        Map<String, String> arguments = new LinkedHashMap<>();
+        for (String property : all) {
+            arguments.put(property.substring(0, property.indexOf('=')), "--" + property);
+        }
+        return new SpringApplicationBuilder(PaymentApplication.class)
+                .run(arguments.values().toArray(String[]::new));
+    }
+
+    static PaymentRequest paymentRequest(Long orderId, String cardNumber) {
+        return PaymentRequest.builder()
+                .orderId(orderId)
+                .amount(new BigDecimal("25.00"))
+                .currency("USD")
+                .cardDetails(PaymentRequest.CardDetails.builder()
+                        .cardNumber(cardNumber)
+                        .cardHolderName("Test User")
+                        .expiryMonth("12")
+                        .expiryYear("2030")
+                        .cvv("123")
+                        .build())
+                .build();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void delay() {
+        long millis = latencyMillis;
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,139 @@
+package com.payment.Payment.service;
+
+import com.payment.Payment.dto.external.CardValidationResponse;
+import com.payment.Payment.entity.Payment;
+import com.payment.Payment.entity.PaymentStatus;
+import com.payment.Payment.gateway.AuthorizationRequest;
+import com.payment.Payment.gateway.PaymentGateway;
+import com.payment.Payment.repository.PaymentRepository;
+import com.payment.Payment.util.TransactionIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static com.payment.Payment.service.StubServices.USER;
+import static com.payment.Payment.service.StubServices.VALID_CARD;
+import static com.payment.Payment.service.StubServices.paymentRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnfinishedPaymentRecoveryTests {
+
+    private static final CardValidationResponse CARD = CardValidationResponse.builder()
+            .valid(true)
+            .cardType("VISA")
+            .cardLastFour("4242")
+            .build();
+
+    @TempDir
+    Path dataDir;
+
+    private StubServices stubs;
+
+    @BeforeEach
+    void startStubs() throws Exception {
+        stubs = new StubServices();
+    }
+
+    @AfterEach
+    void stopStubs() {
+        stubs.close();
+    }
+
+    @Test
+    void aRestartRecoversOnlyThisInstancesPayments() {
+        Long ownPending;
+        Long ownProcessing;
+        Long otherPending;
+        Long otherProcessing;
+        try (ConfigurableApplicationContext context = startApplication()) {
+            ownPending = pending(context, 1L).getId();
+            ownProcessing = processing(context, 2L).getId();
+            otherPending = pending(context, 3L).getId();
+            otherProcessing = processing(context, 4L).getId();
+            context.getBean(JdbcTemplate.class)
+                    .update("UPDATE payments SET node_id = 2 WHERE order_id IN (3, 4)");
+        }
+
+        try (ConfigurableApplicationContext context = startApplication()) {
+            PaymentRepository payments = context.getBean(PaymentRepository.class);
+            // The simulator forgot its charges with the restart, so nothing was charged
+            assertThat(payments.findById(ownPending).orElseThrow())
+                    .extracting(Payment::getStatus, Payment::getFailureReason)
+                    .containsExactly(PaymentStatus.FAILED, "Interrupted by service restart");
+            assertThat(payments.findById(ownProcessing).orElseThrow())
+                    .extracting(Payment::getStatus, Payment::getFailureReason)
+                    .containsExactly(PaymentStatus.FAILED, "Interrupted by service restart");
+            assertThat(payments.findById(otherPending).orElseThrow().getStatus()).isEqualTo(PaymentStatus.PENDING);
+            assertThat(payments.findById(otherProcessing).orElseThrow().getStatus())
+                    .isEqualTo(PaymentStatus.PROCESSING);
+
+            context.getBean(JdbcTemplate.class).update("UPDATE payments SET updated_at = ? WHERE order_id IN (3, 4)",
+                    LocalDateTime.now().minusHours(1));
+            context.getBean(UnfinishedPaymentRecovery.class).recoverStalePayments();
+
+            assertThat(payments.findById(otherPending).orElseThrow())
+                    .extracting(Payment::getStatus, Payment::getFailureReason)
+                    .containsExactly(PaymentStatus.FAILED, "Abandoned by the instance processing it");
+            assertThat(payments.findById(otherProcessing).orElseThrow().getStatus()).isEqualTo(PaymentStatus.FAILED);
+        }
+    }
+
+    @Test
+    void recentPaymentsOfOtherInstancesAreNotStale() {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            Payment payment = processing(context, 5L);
+            context.getBean(JdbcTemplate.class).update("UPDATE payments SET node_id = 2");
+
+            context.getBean(UnfinishedPaymentRecovery.class).recoverStalePayments();
+
+            assertThat(context.getBean(PaymentRepository.class).findById(payment.getId()).orElseThrow().getStatus())
+                    .isEqualTo(PaymentStatus.PROCESSING);
+        }
+    }
+
+    @Test
+    void reconciliationCompletesChargedPaymentsAndFailsTheRest() {
+        try (ConfigurableApplicationContext context = startApplication()) {
+            Payment charged = processing(context, 6L);
+            Payment notCharged = processing(context, 7L);
+            assertThat(context.getBean(PaymentGateway.class).charge(AuthorizationRequest.builder()
+                    .transactionId(charged.getTransactionId())
+                    .orderId(charged.getOrderId())
+                    .amount(charged.getAmount())
+                    .currency(charged.getCurrency())
+                    .cardToken("tok")
+                    .build()).join().isApproved()).isTrue();
+
+            PaymentReconciler reconciler = context.getBean(PaymentReconciler.class);
+
+            assertThat(reconciler.reconcile(charged, "Not charged")).get()
+                    .extracting(Payment::getStatus).isEqualTo(PaymentStatus.COMPLETED);
+            assertThat(reconciler.reconcile(notCharged, "Not charged")).get()
+                    .extracting(Payment::getStatus, Payment::getFailureReason)
+                    .containsExactly(PaymentStatus.FAILED, "Not charged");
+            // Already settled, so a second attempt loses to the first
+            assertThat(reconciler.reconcile(charged, "Not charged")).isEmpty();
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() {
+        return stubs.startApplication("jdbc:h2:file:" + dataDir.resolve("recovery"), "payment.node-id=1");
+    }
+
+    private static Payment pending(ConfigurableApplicationContext context, Long orderId) {
+        return context.getBean(PaymentPersistenceService.class).createPendingPayment(USER,
+                paymentRequest(orderId, VALID_CARD), context.getBean(TransactionIdGenerator.class).nextTransactionId());
+    }
+
+    private static Payment processing(ConfigurableApplicationContext context, Long orderId) {
+        return context.getBean(PaymentPersistenceService.class).createProcessingPayment(USER,
+                paymentRequest(orderId, VALID_CARD), CARD,
+                context.getBean(TransactionIdGenerator.class).nextTransactionId());
+    }
+}
@@ -0,0 +1,46 @@
+package com.payment.Payment.util;
+
+import com.payment.Payment.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentCursorTests {
+
+    @Test
+    void decodesWhatItEncodes() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000);
+
+        PaymentCursor decoded = PaymentCursor.decode(new PaymentCursor(createdAt, 1234567890123L).encode());
+
+        assertThat(decoded.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(decoded.getId()).isEqualTo(1234567890123L);
+    }
+
+    @Test
+    void encodesUrlSafelyWithoutPadding() {
+        String cursor = new PaymentCursor(LocalDateTime.of(2026, 1, 1, 0, 0), 7L).encode();
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThatThrownBy(() -> PaymentCursor.decode("not base64!")).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> PaymentCursor.decode(encode("2026-01-01T00:00")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> PaymentCursor.decode(encode("yesterday|7")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> PaymentCursor.decode(encode("2026-01-01T00:00|seven")))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
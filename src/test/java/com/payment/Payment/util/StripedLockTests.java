@@ -0,0 +1,82 @@
+package com.payment.Payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedLockTests {
+
+    @Test
+    void roundsStripeCountUpToPowerOfTwo() {
+        assertThat(new StripedLock(1).size()).isEqualTo(1);
+        assertThat(new StripedLock(100).size()).isEqualTo(128);
+        assertThat(new StripedLock(256).size()).isEqualTo(256);
+    }
+
+    @Test
+    void sameKeyAlwaysMapsToSameStripe() {
+        StripedLock locks = new StripedLock(64);
+
+        assertThat(locks.lockFor(42L)).isSameAs(locks.lockFor(Long.valueOf(42L)));
+    }
+
+    @Test
+    void serializesWorkForTheSameOrderUnderHeavyContention() throws Exception {
+        StripedLock locks = new StripedLock(16);
+        int threads = 32;
+        int iterationsPerThread = 5_000;
+        int orders = 4;
+
+        long[] unsafeCounters = new long[orders];
+        AtomicIntegerArray insideCriticalSection = new AtomicIntegerArray(orders);
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterationsPerThread; i++) {
+                        int order = (seed + i) % orders;
+                        locks.runLocked((long) order, () -> {
+                            if (insideCriticalSection.incrementAndGet(order) > 1) {
+                                overlaps.incrementAndGet();
+                            }
+                            unsafeCounters[order]++;
+                            insideCriticalSection.decrementAndGet(order);
+                            return null;
+                        });
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long total = 0;
+        for (long counter : unsafeCounters) {
+            total += counter;
+        }
+        assertThat(overlaps.get()).isZero();
+        assertThat(total).isEqualTo((long) threads * iterationsPerThread);
+    }
+}
@@ -0,0 +1,138 @@
+package com.payment.Payment.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionIdGeneratorTests {
+
+    /** Raise with -Dtxid.uniqueness.count=300000000 (and a larger heap) for a long run. */
+    private static final long UNIQUENESS_COUNT = Long.getLong("txid.uniqueness.count", 20_000_000L);
+
+    private final AtomicLong clock = new AtomicLong(TransactionIdGenerator.EPOCH_MILLIS + 1_000);
+
+    @Test
+    void encodesTimestampSequenceAndNode() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(7, clock::get);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertThat(first & TransactionIdGenerator.MAX_NODE_ID).isEqualTo(7);
+        assertThat(first >>> (TransactionIdGenerator.NODE_BITS + TransactionIdGenerator.SEQUENCE_BITS))
+                .isEqualTo(1_000);
+        assertThat(second - first).isEqualTo(1L << TransactionIdGenerator.NODE_BITS);
+    }
+
+    @Test
+    void staysMonotonicWhenTheClockStepsBack() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(1, clock::get);
+        long beforeStep = generator.nextId();
+
+        clock.addAndGet(-5_000);
+
+        assertThat(generator.nextId()).isGreaterThan(beforeStep);
+    }
+
+    @Test
+    void formatsFixedWidthIdsThatSortLikeTheirValues() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(3, clock::get);
+        String earlier = generator.nextTransactionId();
+        clock.addAndGet(1);
+        String later = generator.nextTransactionId();
+
+        assertThat(earlier).matches("TXN-[0-9A-HJKMNP-TV-Z]{13}");
+        assertThat(later).hasSameSizeAs(earlier).isGreaterThan(earlier);
+        assertThat(TransactionIdGenerator.format(0)).isEqualTo("TXN-0000000000000");
+        assertThat(TransactionIdGenerator.format(-1)).isEqualTo("TXN-FZZZZZZZZZZZZ");
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTheNodeBits() {
+        assertThatThrownBy(() -> new TransactionIdGenerator(TransactionIdGenerator.MAX_NODE_ID + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Every thread checks its ids increase and marks them in a shared bitmap indexed by the id's offset from
+     * the first one; marking a bit that is already set means a duplicate.
+     */
+    @Test
+    void generatesUniqueIdsAcrossThreads() throws Exception {
+        TransactionIdGenerator generator = new TransactionIdGenerator(5);
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        long perThread = UNIQUENESS_COUNT / threads;
+        long base = generator.nextId() >>> TransactionIdGenerator.NODE_BITS;
+        ConcurrentBitmap seen = new ConcurrentBitmap();
+        AtomicLong duplicates = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    long previous = Long.MIN_VALUE;
+                    for (long i = 0; i < perThread; i++) {
+                        long id = generator.nextId();
+                        if (id <= previous || !seen.set((id >>> TransactionIdGenerator.NODE_BITS) - base)) {
+                            duplicates.incrementAndGet();
+                        }
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(10, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(duplicates).hasValue(0);
+        assertThat(seen.cardinality()).isEqualTo(perThread * threads);
+    }
+
+    private static final class ConcurrentBitmap {
+
+        private static final int PAGE_BITS = 24;
+
+        private final ConcurrentHashMap<Long, AtomicLongArray> pages = new ConcurrentHashMap<>();
+
+        /** Sets the bit and returns whether it was clear before. */
+        boolean set(long index) {
+            AtomicLongArray page = pages.computeIfAbsent(index >>> PAGE_BITS,
+                    ignored -> new AtomicLongArray(1 << (PAGE_BITS - 6)));
+            int word = (int) ((index & ((1L << PAGE_BITS) - 1)) >>> 6);
+            long mask = 1L << (index & 63);
+            long previous = page.getAndAccumulate(word, mask, (current, bit) -> current | bit);
+            return (previous & mask) == 0;
+        }
+
+        long cardinality() {
+            long total = 0;
+            for (AtomicLongArray page : pages.values()) {
+                for (int i = 0; i < page.length(); i++) {
+                    total += Long.bitCount(page.get(i));
+                }
+            }
+            return total;
+        }
+    }
+}